@@ -0,0 +1,6 @@
+package android.content;
+
+/**
+ * JVM stub.
+ */
+public class Context {}
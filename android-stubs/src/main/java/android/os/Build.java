@@ -0,0 +1,20 @@
+package android.os;
+
+/**
+ * JVM stub: pretends to be the latest supported platform.
+ */
+public class Build {
+
+	public static class VERSION {
+
+		public static final int SDK_INT = 25;
+
+	}
+
+	public static class VERSION_CODES {
+
+		public static final int JELLY_BEAN = 16;
+
+	}
+
+}
@@ -0,0 +1,32 @@
+package android.os;
+
+/**
+ * JVM stub: posted runnables are dropped (nothing runs a loop).
+ */
+public class Handler {
+
+	private final Looper mLooper;
+
+	public Handler() {
+		this(Looper.getMainLooper());
+	}
+
+	public Handler(Looper looper) {
+		mLooper = looper;
+	}
+
+	public final boolean post(Runnable r) {
+		return true;
+	}
+
+	public final boolean postDelayed(Runnable r, long delayMillis) {
+		return true;
+	}
+
+	public final void removeCallbacks(Runnable r) {}
+
+	public final Looper getLooper() {
+		return mLooper;
+	}
+
+}
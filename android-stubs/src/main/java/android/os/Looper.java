@@ -0,0 +1,37 @@
+package android.os;
+
+/**
+ * JVM stub: single main looper, which is bound to the thread, that touched it first.
+ */
+public final class Looper {
+
+	private static Looper sMainLooper;
+
+	private final Thread mThread;
+	private final MessageQueue mQueue = new MessageQueue();
+
+	private Looper(Thread thread) {
+		mThread = thread;
+	}
+
+	public static synchronized Looper getMainLooper() {
+		if (sMainLooper == null) {
+			sMainLooper = new Looper(Thread.currentThread());
+		}
+		return sMainLooper;
+	}
+
+	public static Looper myLooper() {
+		Looper main = getMainLooper();
+		return main.mThread == Thread.currentThread() ? main : null;
+	}
+
+	public static MessageQueue myQueue() {
+		return getMainLooper().mQueue;
+	}
+
+	public Thread getThread() {
+		return mThread;
+	}
+
+}
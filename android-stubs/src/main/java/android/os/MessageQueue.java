@@ -0,0 +1,33 @@
+package android.os;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JVM stub: idle handlers are kept, but never called (nothing runs a loop).
+ */
+public final class MessageQueue {
+
+	private final List<IdleHandler> mIdleHandlers = new ArrayList<>();
+
+	MessageQueue() {}
+
+	public void addIdleHandler(IdleHandler handler) {
+		synchronized (mIdleHandlers) {
+			mIdleHandlers.add(handler);
+		}
+	}
+
+	public void removeIdleHandler(IdleHandler handler) {
+		synchronized (mIdleHandlers) {
+			mIdleHandlers.remove(handler);
+		}
+	}
+
+	public interface IdleHandler {
+
+		boolean queueIdle();
+
+	}
+
+}
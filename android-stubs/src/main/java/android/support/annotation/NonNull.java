@@ -0,0 +1,10 @@
+package android.support.annotation;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * JVM stub.
+ */
+@Retention(RetentionPolicy.CLASS)
+public @interface NonNull {}
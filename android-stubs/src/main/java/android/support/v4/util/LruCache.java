@@ -0,0 +1,47 @@
+package android.support.v4.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JVM stub: access ordered map, every entry has size 1.
+ */
+public class LruCache<K, V> {
+
+	private final int mMaxSize;
+	private final LinkedHashMap<K, V> mMap;
+
+	public LruCache(int maxSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize <= 0");
+		}
+		mMaxSize = maxSize;
+		mMap = new LinkedHashMap<K, V>(0, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				return size() > mMaxSize;
+			}
+		};
+	}
+
+	public final synchronized V get(K key) {
+		return mMap.get(key);
+	}
+
+	public final synchronized V put(K key, V value) {
+		return mMap.put(key, value);
+	}
+
+	public final synchronized V remove(K key) {
+		return mMap.remove(key);
+	}
+
+	public final synchronized void evictAll() {
+		mMap.clear();
+	}
+
+	public final synchronized int size() {
+		return mMap.size();
+	}
+
+}
@@ -0,0 +1,29 @@
+package android.support.v4.view;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * JVM stub: inflates synchronously.
+ */
+public final class AsyncLayoutInflater {
+
+	private final LayoutInflater mInflater;
+
+	public AsyncLayoutInflater(Context context) {
+		mInflater = LayoutInflater.from(context);
+	}
+
+	public void inflate(int resid, ViewGroup parent, OnInflateFinishedListener callback) {
+		callback.onInflateFinished(mInflater.inflate(resid, parent, false), resid, parent);
+	}
+
+	public interface OnInflateFinishedListener {
+
+		void onInflateFinished(View view, int resid, ViewGroup parent);
+
+	}
+
+}
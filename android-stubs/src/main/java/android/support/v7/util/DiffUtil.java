@@ -0,0 +1,42 @@
+package android.support.v7.util;
+
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * JVM stub: diffing isn't benchmarked, so it's not available.
+ */
+public class DiffUtil {
+
+	private DiffUtil() {}
+
+	public static DiffResult calculateDiff(Callback cb) {
+		throw new UnsupportedOperationException("DiffUtil isn't available in benchmark stubs");
+	}
+
+	public abstract static class Callback {
+
+		public abstract int getOldListSize();
+
+		public abstract int getNewListSize();
+
+		public abstract boolean areItemsTheSame(int oldItemPosition, int newItemPosition);
+
+		public abstract boolean areContentsTheSame(int oldItemPosition, int newItemPosition);
+
+		public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+			return null;
+		}
+
+	}
+
+	public static class DiffResult {
+
+		private DiffResult() {}
+
+		public void dispatchUpdatesTo(RecyclerView.Adapter adapter) {}
+
+		public void dispatchUpdatesTo(ListUpdateCallback updateCallback) {}
+
+	}
+
+}
@@ -0,0 +1,16 @@
+package android.support.v7.util;
+
+/**
+ * JVM stub.
+ */
+public interface ListUpdateCallback {
+
+	void onInserted(int position, int count);
+
+	void onRemoved(int position, int count);
+
+	void onMoved(int fromPosition, int toPosition);
+
+	void onChanged(int position, int count, Object payload);
+
+}
@@ -0,0 +1,42 @@
+package android.support.v7.widget;
+
+import android.content.Context;
+
+/**
+ * JVM stub: span size lookup only.
+ */
+public class GridLayoutManager extends LinearLayoutManager {
+
+	private SpanSizeLookup mSpanSizeLookup;
+
+	public GridLayoutManager(Context context, int spanCount) {
+		super(context);
+	}
+
+	public void setSpanSizeLookup(SpanSizeLookup spanSizeLookup) {
+		mSpanSizeLookup = spanSizeLookup;
+	}
+
+	public SpanSizeLookup getSpanSizeLookup() {
+		return mSpanSizeLookup;
+	}
+
+	public abstract static class SpanSizeLookup {
+
+		private boolean mCacheSpanIndices = false;
+
+		public abstract int getSpanSize(int position);
+
+		public void setSpanIndexCacheEnabled(boolean cacheSpanIndices) {
+			mCacheSpanIndices = cacheSpanIndices;
+		}
+
+		public void invalidateSpanIndexCache() {}
+
+		public boolean isSpanIndexCacheEnabled() {
+			return mCacheSpanIndices;
+		}
+
+	}
+
+}
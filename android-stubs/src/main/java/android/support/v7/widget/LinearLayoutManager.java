@@ -0,0 +1,14 @@
+package android.support.v7.widget;
+
+import android.content.Context;
+
+/**
+ * JVM stub.
+ */
+public class LinearLayoutManager extends RecyclerView.LayoutManager {
+
+	public LinearLayoutManager(Context context) {}
+
+	public void scrollToPositionWithOffset(int position, int offset) {}
+
+}
@@ -0,0 +1,305 @@
+package android.support.v7.widget;
+
+import android.content.Context;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JVM stub: adapter contract (observers, view holder creation and binding) and view pool, no
+ * layout at all.
+ */
+public class RecyclerView extends ViewGroup {
+
+	public static final int NO_POSITION = -1;
+	public static final long NO_ID = -1;
+	public static final int INVALID_TYPE = -1;
+
+	private Adapter mAdapter;
+	private LayoutManager mLayout;
+	private RecycledViewPool mRecycledViewPool = new RecycledViewPool();
+
+	public RecyclerView(Context context) {
+		super(context);
+	}
+
+	@SuppressWarnings("unchecked")
+	public void setAdapter(Adapter adapter) {
+		if (mAdapter != null) {
+			mAdapter.onDetachedFromRecyclerView(this);
+		}
+		mAdapter = adapter;
+		if (adapter != null) {
+			adapter.onAttachedToRecyclerView(this);
+		}
+	}
+
+	public Adapter getAdapter() {
+		return mAdapter;
+	}
+
+	public void setLayoutManager(LayoutManager layout) {
+		mLayout = layout;
+	}
+
+	public LayoutManager getLayoutManager() {
+		return mLayout;
+	}
+
+	public RecycledViewPool getRecycledViewPool() {
+		return mRecycledViewPool;
+	}
+
+	public void setRecycledViewPool(RecycledViewPool pool) {
+		mRecycledViewPool = pool != null ? pool : new RecycledViewPool();
+	}
+
+	public void scrollToPosition(int position) {
+		if (mLayout != null) {
+			mLayout.scrollToPosition(position);
+		}
+	}
+
+	public abstract static class Adapter<VH extends ViewHolder> {
+
+		private final List<AdapterDataObserver> mObservers = new ArrayList<>();
+		private boolean mHasStableIds = false;
+
+		public abstract VH onCreateViewHolder(ViewGroup parent, int viewType);
+
+		public abstract void onBindViewHolder(VH holder, int position);
+
+		public void onBindViewHolder(VH holder, int position, List<Object> payloads) {
+			onBindViewHolder(holder, position);
+		}
+
+		public final VH createViewHolder(ViewGroup parent, int viewType) {
+			VH holder = onCreateViewHolder(parent, viewType);
+			holder.mItemViewType = viewType;
+			return holder;
+		}
+
+		public final void bindViewHolder(VH holder, int position) {
+			holder.mPosition = position;
+			if (hasStableIds()) {
+				holder.mItemId = getItemId(position);
+			}
+			onBindViewHolder(holder, position, Collections.<Object>emptyList());
+		}
+
+		public int getItemViewType(int position) {
+			return 0;
+		}
+
+		public void setHasStableIds(boolean hasStableIds) {
+			if (hasObservers()) {
+				throw new IllegalStateException("Cannot change whether this adapter has "
+						+ "stable IDs while the adapter has registered observers.");
+			}
+			mHasStableIds = hasStableIds;
+		}
+
+		public long getItemId(int position) {
+			return NO_ID;
+		}
+
+		public abstract int getItemCount();
+
+		public final boolean hasStableIds() {
+			return mHasStableIds;
+		}
+
+		public void onViewRecycled(VH holder) {}
+
+		public boolean onFailedToRecycleView(VH holder) {
+			return false;
+		}
+
+		public void onViewAttachedToWindow(VH holder) {}
+
+		public void onViewDetachedFromWindow(VH holder) {}
+
+		public final boolean hasObservers() {
+			return !mObservers.isEmpty();
+		}
+
+		public void registerAdapterDataObserver(AdapterDataObserver observer) {
+			if (observer == null) {
+				throw new IllegalArgumentException("The observer is null.");
+			}
+			if (mObservers.contains(observer)) {
+				throw new IllegalStateException("Observer " + observer + " is already registered.");
+			}
+			mObservers.add(observer);
+		}
+
+		public void unregisterAdapterDataObserver(AdapterDataObserver observer) {
+			if (observer == null) {
+				throw new IllegalArgumentException("The observer is null.");
+			}
+			int index = mObservers.indexOf(observer);
+			if (index == -1) {
+				throw new IllegalStateException("Observer " + observer + " was not registered.");
+			}
+			mObservers.remove(index);
+		}
+
+		public void onAttachedToRecyclerView(RecyclerView recyclerView) {}
+
+		public void onDetachedFromRecyclerView(RecyclerView recyclerView) {}
+
+		//observers are notified in reverse order, as in android Observable
+		public final void notifyDataSetChanged() {
+			for (int i = mObservers.size() - 1; i >= 0; i--) {
+				mObservers.get(i).onChanged();
+			}
+		}
+
+		public final void notifyItemChanged(int position) {
+			notifyItemRangeChanged(position, 1, null);
+		}
+
+		public final void notifyItemChanged(int position, Object payload) {
+			notifyItemRangeChanged(position, 1, payload);
+		}
+
+		public final void notifyItemRangeChanged(int positionStart, int itemCount) {
+			notifyItemRangeChanged(positionStart, itemCount, null);
+		}
+
+		public final void notifyItemRangeChanged(int positionStart, int itemCount,
+												 Object payload) {
+			for (int i = mObservers.size() - 1; i >= 0; i--) {
+				mObservers.get(i).onItemRangeChanged(positionStart, itemCount, payload);
+			}
+		}
+
+		public final void notifyItemInserted(int position) {
+			notifyItemRangeInserted(position, 1);
+		}
+
+		public final void notifyItemRangeInserted(int positionStart, int itemCount) {
+			for (int i = mObservers.size() - 1; i >= 0; i--) {
+				mObservers.get(i).onItemRangeInserted(positionStart, itemCount);
+			}
+		}
+
+		public final void notifyItemMoved(int fromPosition, int toPosition) {
+			for (int i = mObservers.size() - 1; i >= 0; i--) {
+				mObservers.get(i).onItemRangeMoved(fromPosition, toPosition, 1);
+			}
+		}
+
+		public final void notifyItemRemoved(int position) {
+			notifyItemRangeRemoved(position, 1);
+		}
+
+		public final void notifyItemRangeRemoved(int positionStart, int itemCount) {
+			for (int i = mObservers.size() - 1; i >= 0; i--) {
+				mObservers.get(i).onItemRangeRemoved(positionStart, itemCount);
+			}
+		}
+
+	}
+
+	public abstract static class ViewHolder {
+
+		public final View itemView;
+		int mPosition = NO_POSITION;
+		long mItemId = NO_ID;
+		int mItemViewType = INVALID_TYPE;
+
+		public ViewHolder(View itemView) {
+			if (itemView == null) {
+				throw new IllegalArgumentException("itemView may not be null");
+			}
+			this.itemView = itemView;
+		}
+
+		public final int getAdapterPosition() {
+			return mPosition;
+		}
+
+		public final int getLayoutPosition() {
+			return mPosition;
+		}
+
+		public final long getItemId() {
+			return mItemId;
+		}
+
+		public final int getItemViewType() {
+			return mItemViewType;
+		}
+
+	}
+
+	public abstract static class AdapterDataObserver {
+
+		public void onChanged() {}
+
+		public void onItemRangeChanged(int positionStart, int itemCount) {}
+
+		public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+			onItemRangeChanged(positionStart, itemCount);
+		}
+
+		public void onItemRangeInserted(int positionStart, int itemCount) {}
+
+		public void onItemRangeRemoved(int positionStart, int itemCount) {}
+
+		public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {}
+
+	}
+
+	public abstract static class LayoutManager {
+
+		public void scrollToPosition(int position) {}
+
+	}
+
+	public static class RecycledViewPool {
+
+		private static final int DEFAULT_MAX_SCRAP = 5;
+
+		private final SparseArray<List<ViewHolder>> mScrap = new SparseArray<>();
+		private final SparseIntArray mMaxScrap = new SparseIntArray();
+
+		public void clear() {
+			mScrap.clear();
+		}
+
+		public void setMaxRecycledViews(int viewType, int max) {
+			mMaxScrap.put(viewType, max);
+			List<ViewHolder> scrap = mScrap.get(viewType);
+			while (scrap != null && scrap.size() > max) {
+				scrap.remove(scrap.size() - 1);
+			}
+		}
+
+		public ViewHolder getRecycledView(int viewType) {
+			List<ViewHolder> scrap = mScrap.get(viewType);
+			return scrap != null && !scrap.isEmpty() ? scrap.remove(scrap.size() - 1) : null;
+		}
+
+		public void putRecycledView(ViewHolder scrap) {
+			int viewType = scrap.getItemViewType();
+			List<ViewHolder> scrapHeap = mScrap.get(viewType);
+			if (scrapHeap == null) {
+				scrapHeap = new ArrayList<>();
+				mScrap.put(viewType, scrapHeap);
+			}
+			if (scrapHeap.size() < mMaxScrap.get(viewType, DEFAULT_MAX_SCRAP)) {
+				scrap.mPosition = NO_POSITION;
+				scrapHeap.add(scrap);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,29 @@
+package android.util;
+
+/**
+ * JVM stub: the same binary search as android one, so sparse arrays allocate the same way.
+ */
+class ContainerHelpers {
+
+	static int binarySearch(int[] array, int size, int value) {
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int middleValue = array[middle];
+			if (middleValue < value) {
+				low = middle + 1;
+			} else if (middleValue > value) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return ~low;
+	}
+
+	static int growSize(int currentSize) {
+		return currentSize <= 4 ? 8 : currentSize * 2;
+	}
+
+}
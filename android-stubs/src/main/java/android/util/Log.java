@@ -0,0 +1,30 @@
+package android.util;
+
+/**
+ * JVM stub: logs are dropped, so they don't affect measurements.
+ */
+public final class Log {
+
+	private Log() {}
+
+	public static int d(String tag, String msg) {
+		return 0;
+	}
+
+	public static int w(String tag, String msg) {
+		return 0;
+	}
+
+	public static int w(String tag, String msg, Throwable tr) {
+		return 0;
+	}
+
+	public static int e(String tag, String msg) {
+		return 0;
+	}
+
+	public static int e(String tag, String msg, Throwable tr) {
+		return 0;
+	}
+
+}
@@ -0,0 +1,106 @@
+package android.util;
+
+import java.util.Arrays;
+
+/**
+ * JVM stub: sorted int keys with binary search, as android one (without delayed removal).
+ */
+public class SparseArray<E> {
+
+	private int[] mKeys;
+	private Object[] mValues;
+	private int mSize;
+
+	public SparseArray() {
+		this(10);
+	}
+
+	public SparseArray(int initialCapacity) {
+		mKeys = new int[initialCapacity];
+		mValues = new Object[initialCapacity];
+	}
+
+	public E get(int key) {
+		return get(key, null);
+	}
+
+	@SuppressWarnings("unchecked")
+	public E get(int key, E valueIfKeyNotFound) {
+		int i = ContainerHelpers.binarySearch(mKeys, mSize, key);
+		return i < 0 ? valueIfKeyNotFound : (E) mValues[i];
+	}
+
+	public void delete(int key) {
+		int i = ContainerHelpers.binarySearch(mKeys, mSize, key);
+		if (i >= 0) {
+			removeAt(i);
+		}
+	}
+
+	public void remove(int key) {
+		delete(key);
+	}
+
+	public void removeAt(int index) {
+		System.arraycopy(mKeys, index + 1, mKeys, index, mSize - (index + 1));
+		System.arraycopy(mValues, index + 1, mValues, index, mSize - (index + 1));
+		mValues[--mSize] = null;
+	}
+
+	public void put(int key, E value) {
+		int i = ContainerHelpers.binarySearch(mKeys, mSize, key);
+		if (i >= 0) {
+			mValues[i] = value;
+			return;
+		}
+		i = ~i;
+		if (mSize >= mKeys.length) {
+			int newSize = ContainerHelpers.growSize(mSize);
+			mKeys = Arrays.copyOf(mKeys, newSize);
+			mValues = Arrays.copyOf(mValues, newSize);
+		}
+		System.arraycopy(mKeys, i, mKeys, i + 1, mSize - i);
+		System.arraycopy(mValues, i, mValues, i + 1, mSize - i);
+		mKeys[i] = key;
+		mValues[i] = value;
+		mSize++;
+	}
+
+	public int size() {
+		return mSize;
+	}
+
+	public int keyAt(int index) {
+		return mKeys[index];
+	}
+
+	@SuppressWarnings("unchecked")
+	public E valueAt(int index) {
+		return (E) mValues[index];
+	}
+
+	public void setValueAt(int index, E value) {
+		mValues[index] = value;
+	}
+
+	public int indexOfKey(int key) {
+		return ContainerHelpers.binarySearch(mKeys, mSize, key);
+	}
+
+	public int indexOfValue(E value) {
+		for (int i = 0; i < mSize; i++) {
+			if (mValues[i] == value) return i;
+		}
+		return -1;
+	}
+
+	public void clear() {
+		Arrays.fill(mValues, 0, mSize, null);
+		mSize = 0;
+	}
+
+	public void append(int key, E value) {
+		put(key, value);
+	}
+
+}
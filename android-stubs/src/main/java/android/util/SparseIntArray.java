@@ -0,0 +1,106 @@
+package android.util;
+
+import java.util.Arrays;
+
+/**
+ * JVM stub: sorted int keys with binary search, as android one.
+ */
+public class SparseIntArray {
+
+	private int[] mKeys;
+	private int[] mValues;
+	private int mSize;
+
+	public SparseIntArray() {
+		this(10);
+	}
+
+	public SparseIntArray(int initialCapacity) {
+		mKeys = new int[initialCapacity];
+		mValues = new int[initialCapacity];
+	}
+
+	public int get(int key) {
+		return get(key, 0);
+	}
+
+	public int get(int key, int valueIfKeyNotFound) {
+		int i = ContainerHelpers.binarySearch(mKeys, mSize, key);
+		return i < 0 ? valueIfKeyNotFound : mValues[i];
+	}
+
+	public void delete(int key) {
+		int i = ContainerHelpers.binarySearch(mKeys, mSize, key);
+		if (i >= 0) {
+			removeAt(i);
+		}
+	}
+
+	public void removeAt(int index) {
+		System.arraycopy(mKeys, index + 1, mKeys, index, mSize - (index + 1));
+		System.arraycopy(mValues, index + 1, mValues, index, mSize - (index + 1));
+		mSize--;
+	}
+
+	public void put(int key, int value) {
+		int i = ContainerHelpers.binarySearch(mKeys, mSize, key);
+		if (i >= 0) {
+			mValues[i] = value;
+			return;
+		}
+		i = ~i;
+		if (mSize >= mKeys.length) {
+			int newSize = ContainerHelpers.growSize(mSize);
+			mKeys = Arrays.copyOf(mKeys, newSize);
+			mValues = Arrays.copyOf(mValues, newSize);
+		}
+		System.arraycopy(mKeys, i, mKeys, i + 1, mSize - i);
+		System.arraycopy(mValues, i, mValues, i + 1, mSize - i);
+		mKeys[i] = key;
+		mValues[i] = value;
+		mSize++;
+	}
+
+	public int size() {
+		return mSize;
+	}
+
+	public int keyAt(int index) {
+		return mKeys[index];
+	}
+
+	public int valueAt(int index) {
+		return mValues[index];
+	}
+
+	public int indexOfKey(int key) {
+		return ContainerHelpers.binarySearch(mKeys, mSize, key);
+	}
+
+	public int indexOfValue(int value) {
+		for (int i = 0; i < mSize; i++) {
+			if (mValues[i] == value) return i;
+		}
+		return -1;
+	}
+
+	public void clear() {
+		mSize = 0;
+	}
+
+	public void append(int key, int value) {
+		if (mSize != 0 && key <= mKeys[mSize - 1]) {
+			put(key, value);
+			return;
+		}
+		if (mSize >= mKeys.length) {
+			int newSize = ContainerHelpers.growSize(mSize);
+			mKeys = Arrays.copyOf(mKeys, newSize);
+			mValues = Arrays.copyOf(mValues, newSize);
+		}
+		mKeys[mSize] = key;
+		mValues[mSize] = value;
+		mSize++;
+	}
+
+}
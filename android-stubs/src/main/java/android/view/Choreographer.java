@@ -0,0 +1,24 @@
+package android.view;
+
+/**
+ * JVM stub: frame callbacks are dropped (there are no frames).
+ */
+public final class Choreographer {
+
+	private static final Choreographer INSTANCE = new Choreographer();
+
+	public static Choreographer getInstance() {
+		return INSTANCE;
+	}
+
+	public void postFrameCallback(FrameCallback callback) {}
+
+	public void removeFrameCallback(FrameCallback callback) {}
+
+	public interface FrameCallback {
+
+		void doFrame(long frameTimeNanos);
+
+	}
+
+}
@@ -0,0 +1,29 @@
+package android.view;
+
+import android.content.Context;
+
+/**
+ * JVM stub: every layout is inflated as an empty view.
+ */
+public class LayoutInflater {
+
+	private final Context mContext;
+
+	private LayoutInflater(Context context) {
+		mContext = context;
+	}
+
+	public static LayoutInflater from(Context context) {
+		return new LayoutInflater(context);
+	}
+
+	public View inflate(int resource, ViewGroup root, boolean attachToRoot) {
+		View view = new View(mContext);
+		if (root != null && attachToRoot) {
+			root.addView(view);
+			return root;
+		}
+		return view;
+	}
+
+}
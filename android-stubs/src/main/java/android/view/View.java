@@ -0,0 +1,42 @@
+package android.view;
+
+import android.content.Context;
+import android.util.SparseArray;
+
+/**
+ * JVM stub: keeps only context, layout params and tags.
+ */
+public class View {
+
+	private final Context mContext;
+	private ViewGroup.LayoutParams mLayoutParams;
+	private SparseArray<Object> mKeyedTags;//created on demand, as in android
+
+	public View(Context context) {
+		mContext = context;
+	}
+
+	public final Context getContext() {
+		return mContext;
+	}
+
+	public ViewGroup.LayoutParams getLayoutParams() {
+		return mLayoutParams;
+	}
+
+	public void setLayoutParams(ViewGroup.LayoutParams params) {
+		mLayoutParams = params;
+	}
+
+	public Object getTag(int key) {
+		return mKeyedTags != null ? mKeyedTags.get(key) : null;
+	}
+
+	public void setTag(int key, Object tag) {
+		if (mKeyedTags == null) {
+			mKeyedTags = new SparseArray<>(2);
+		}
+		mKeyedTags.put(key, tag);
+	}
+
+}
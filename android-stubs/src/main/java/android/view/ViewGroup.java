@@ -0,0 +1,50 @@
+package android.view;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JVM stub: keeps children only.
+ */
+public class ViewGroup extends View {
+
+	private final List<View> mChildren = new ArrayList<>();
+
+	public ViewGroup(Context context) {
+		super(context);
+	}
+
+	public void addView(View child) {
+		mChildren.add(child);
+	}
+
+	public void removeAllViews() {
+		mChildren.clear();
+	}
+
+	public int getChildCount() {
+		return mChildren.size();
+	}
+
+	public View getChildAt(int index) {
+		return mChildren.get(index);
+	}
+
+	public static class LayoutParams {
+
+		public static final int MATCH_PARENT = -1;
+		public static final int WRAP_CONTENT = -2;
+
+		public int width;
+		public int height;
+
+		public LayoutParams(int width, int height) {
+			this.width = width;
+			this.height = height;
+		}
+
+	}
+
+}
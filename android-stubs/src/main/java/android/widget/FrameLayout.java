@@ -0,0 +1,15 @@
+package android.widget;
+
+import android.content.Context;
+import android.view.ViewGroup;
+
+/**
+ * JVM stub.
+ */
+public class FrameLayout extends ViewGroup {
+
+	public FrameLayout(Context context) {
+		super(context);
+	}
+
+}
@@ -0,0 +1,15 @@
+package su.j2e.rvjoiner;
+
+/**
+ * JVM stub of generated library resources.
+ */
+public final class R {
+
+	public static final class id {
+
+		public static final int rv_joiner_owner = 0x7f0b0001;
+		public static final int rv_joiner_id_namespace = 0x7f0b0002;
+
+	}
+
+}
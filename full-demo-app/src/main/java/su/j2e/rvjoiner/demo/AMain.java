@@ -28,9 +28,8 @@ import su.j2e.rvjoiner.demo.list.NotesAdapter;
  */
 public class AMain extends AppCompatActivity implements View.OnClickListener, JoinableLayout.Callback {
 
-	//we need unique (for all joiner) type constants only for extra grid layout manager customization
-	private static final int NOTES_TITLE_TYPE = 21;
-	private static final int ISSUES_TITLE_TYPE = 22;
+	//titles take full row in grid
+	private static final int TITLE_SPAN_SIZE = 2;
 
 	private RecyclerView recyclerView;
 	private RvJoiner rvJoiner = new RvJoiner(true);//auto update ON, stable ids ON
@@ -46,11 +45,16 @@ public class AMain extends AppCompatActivity implements View.OnClickListener, Jo
 		recyclerView = (RecyclerView) findViewById(R.id.recycler_view);
 		setLinearLayoutManager(recyclerView);
 		//construct joiner
-		rvJoiner.add(new JoinableLayout(R.layout.notes_title, NOTES_TITLE_TYPE));
+		JoinableLayout notesTitle = new JoinableLayout(R.layout.notes_title);
+		rvJoiner.add(notesTitle);
 		rvJoiner.add(new JoinableAdapter(notesAdapter));
-		rvJoiner.add(new JoinableLayout(R.layout.issues_title, ISSUES_TITLE_TYPE));
+		JoinableLayout issuesTitle = new JoinableLayout(R.layout.issues_title);
+		rvJoiner.add(issuesTitle);
 		rvJoiner.add(new JoinableAdapter(issuesAdapter, IssuesAdapter.VIEW_TYPE_TASK,
 				IssuesAdapter.VIEW_TYPE_BUG));
+		//grid span sizes (used by span size lookup from joiner)
+		rvJoiner.setSpanSize(notesTitle, TITLE_SPAN_SIZE);
+		rvJoiner.setSpanSize(issuesTitle, TITLE_SPAN_SIZE);
 		//example of extra view initialization
 		rvJoiner.add(new JoinableLayout(R.layout.clickable, new JoinableLayout.Callback() {
 			@Override
@@ -93,15 +97,9 @@ public class AMain extends AppCompatActivity implements View.OnClickListener, Jo
 		recyclerView.setLayoutManager(new LinearLayoutManager(this));
 	}
 
-	private void setGridLayoutManager(RecyclerView recyclerView, final RvJoiner rvJoiner) {
-		GridLayoutManager gridLayoutManager = new GridLayoutManager(this, 2);
-		gridLayoutManager.setSpanSizeLookup(new GridLayoutManager.SpanSizeLookup() {
-			@Override
-			public int getSpanSize(int position) {
-				int realType = rvJoiner.getPositionInfo(position).realType;
-				return realType == NOTES_TITLE_TYPE || realType == ISSUES_TITLE_TYPE ? 2 : 1;
-			}
-		});
+	private void setGridLayoutManager(RecyclerView recyclerView, RvJoiner rvJoiner) {
+		GridLayoutManager gridLayoutManager = new GridLayoutManager(this, TITLE_SPAN_SIZE);
+		gridLayoutManager.setSpanSizeLookup(rvJoiner.getSpanSizeLookup());
 		recyclerView.setLayoutManager(gridLayoutManager);
 	}
 
@@ -118,9 +116,9 @@ public class AMain extends AppCompatActivity implements View.OnClickListener, Jo
 			@Override
 			public void onClick(View v) {
 				int viewPosition = recyclerView.getChildAdapterPosition(v);
-				RvJoiner.PositionInfo positionInfo = rvJoiner.getPositionInfo(viewPosition);
+				RvJoiner.Joinable joinable = rvJoiner.getJoinable(viewPosition);
 				//remove joinable
-				rvJoiner.remove(positionInfo.joinable);
+				if (joinable != null) rvJoiner.remove(joinable);
 			}
 		});
 	}
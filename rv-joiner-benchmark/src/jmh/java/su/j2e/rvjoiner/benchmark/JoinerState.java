@@ -0,0 +1,79 @@
+package su.j2e.rvjoiner.benchmark;
+
+import android.support.v7.widget.RecyclerView;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+import su.j2e.rvjoiner.JoinableAdapter;
+import su.j2e.rvjoiner.RvJoiner;
+
+/**
+ * Joiner with auto update, joinables of two types and total items spread evenly between them.
+ * The middle joinable has at least 2 * {@link #MOVED_COUNT} items, so moves inside it are real
+ * with any params (total count is a few items bigger then, for ex. with 1000 joinables of 1000
+ * items). Positions for lookups are random, so the last resolved position is almost never reused.
+ */
+@State(Scope.Thread)
+public class JoinerState {
+
+	static final int MOVED_COUNT = 8;//items moved by range move
+
+	private static final int POSITION_COUNT = 1024;//power of 2
+
+	@Param({"1", "10", "100", "1000"})
+	public int joinables;
+
+	@Param({"1000", "100000", "1000000"})
+	public int totalItems;
+
+	RvJoiner rvJoiner;
+	RecyclerView.Adapter hostAdapter;
+	StubAdapter[] adapters;
+	JoinableAdapter[] joinableAdapters;
+	StubAdapter.Holder holder;
+
+	private int[] mPositions;
+	private int mNextPosition = 0;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		rvJoiner = new RvJoiner();
+		adapters = new StubAdapter[joinables];
+		joinableAdapters = new JoinableAdapter[joinables];
+		int itemsPerJoinable = totalItems / joinables;
+		for (int i = 0; i < joinables; i++) {
+			int itemCount = i < joinables - 1 ? itemsPerJoinable
+					: totalItems - itemsPerJoinable * (joinables - 1);
+			if (i == middle()) {
+				itemCount = Math.max(itemCount, 2 * MOVED_COUNT);
+			}
+			adapters[i] = new StubAdapter(itemCount);
+			joinableAdapters[i] = new JoinableAdapter(adapters[i], StubAdapter.TYPES);
+			rvJoiner.add(joinableAdapters[i]);
+		}
+		hostAdapter = rvJoiner.getAdapter();
+		holder = adapters[0].onCreateViewHolder(new RecyclerView(null), StubAdapter.TYPES[0]);
+		mPositions = new int[POSITION_COUNT];
+		Random random = new Random(42);
+		for (int i = 0; i < POSITION_COUNT; i++) {
+			mPositions[i] = random.nextInt(totalItems);
+		}
+	}
+
+	int nextPosition() {
+		mNextPosition = (mNextPosition + 1) & (POSITION_COUNT - 1);
+		return mPositions[mNextPosition];
+	}
+
+	//the middle one, so updates shift positions of a half of joinables
+	int middle() {
+		return joinables / 2;
+	}
+
+}
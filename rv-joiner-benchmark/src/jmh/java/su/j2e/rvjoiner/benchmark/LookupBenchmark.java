@@ -0,0 +1,52 @@
+package su.j2e.rvjoiner.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import su.j2e.rvjoiner.RvJoiner;
+
+/**
+ * Calls, which recycler makes for every shown item: position mapping engine on the read side.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class LookupBenchmark {
+
+	private RvJoiner.PositionInfo mReuse;
+
+	@Setup
+	public void setUp() {
+		mReuse = new RvJoiner.PositionInfo();
+	}
+
+	@Benchmark
+	public int getItemViewType(JoinerState state) {
+		return state.hostAdapter.getItemViewType(state.nextPosition());
+	}
+
+	@Benchmark
+	@SuppressWarnings("unchecked")
+	public int onBindViewHolder(JoinerState state) {
+		state.hostAdapter.onBindViewHolder(state.holder, state.nextPosition());
+		return state.holder.boundPosition;
+	}
+
+	@Benchmark
+	public RvJoiner.PositionInfo getPositionInfo(JoinerState state) {
+		return state.rvJoiner.getPositionInfo(state.nextPosition());
+	}
+
+	@Benchmark
+	public RvJoiner.PositionInfo getPositionInfoReuse(JoinerState state) {
+		return state.rvJoiner.getPositionInfo(state.nextPosition(), mReuse);
+	}
+
+}
@@ -0,0 +1,78 @@
+package su.j2e.rvjoiner.benchmark;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adapter without data: item type depends on position only, binding just remembers position.
+ * Item count can be changed, to notify about insertions and removals. Range moves, which
+ * recycler's adapter can't notify about (only diff util can), are sent to observers directly.
+ */
+class StubAdapter extends RecyclerView.Adapter<StubAdapter.Holder> {
+
+	static final int[] TYPES = {0, 1};
+
+	private int mItemCount;
+	private List<RecyclerView.AdapterDataObserver> mObservers = new ArrayList<>();
+
+	StubAdapter(int itemCount) {
+		mItemCount = itemCount;
+	}
+
+	void setItemCount(int itemCount) {
+		mItemCount = itemCount;
+	}
+
+	void notifyItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+		for (int i = mObservers.size() - 1; i >= 0; i--) {
+			mObservers.get(i).onItemRangeMoved(fromPosition, toPosition, itemCount);
+		}
+	}
+
+	@Override
+	public void registerAdapterDataObserver(RecyclerView.AdapterDataObserver observer) {
+		super.registerAdapterDataObserver(observer);
+		mObservers.add(observer);
+	}
+
+	@Override
+	public void unregisterAdapterDataObserver(RecyclerView.AdapterDataObserver observer) {
+		super.unregisterAdapterDataObserver(observer);
+		mObservers.remove(observer);
+	}
+
+	@Override
+	public Holder onCreateViewHolder(ViewGroup parent, int viewType) {
+		return new Holder(new View(parent.getContext()));
+	}
+
+	@Override
+	public void onBindViewHolder(Holder holder, int position) {
+		holder.boundPosition = position;
+	}
+
+	@Override
+	public int getItemCount() {
+		return mItemCount;
+	}
+
+	@Override
+	public int getItemViewType(int position) {
+		return TYPES[position % TYPES.length];
+	}
+
+	static class Holder extends RecyclerView.ViewHolder {
+
+		int boundPosition = RecyclerView.NO_POSITION;
+
+		Holder(View itemView) {
+			super(itemView);
+		}
+
+	}
+
+}
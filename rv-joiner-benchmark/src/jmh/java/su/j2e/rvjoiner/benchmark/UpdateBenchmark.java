@@ -0,0 +1,100 @@
+package su.j2e.rvjoiner.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import su.j2e.rvjoiner.JoinableAdapter;
+
+/**
+ * Write side: index rebuild and translation of joinable notifications to joined ones. Every
+ * operation leaves joiner in the same state, so iterations measure the same work.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UpdateBenchmark {
+
+	//notify method called on joined adapter, so joiner re-reads counts of all joinables
+	@Benchmark
+	public int postDataSetChanged(JoinerState state) {
+		state.hostAdapter.notifyDataSetChanged();
+		return state.hostAdapter.getItemCount();
+	}
+
+	@Benchmark
+	public int translateRangeChanged(JoinerState state) {
+		StubAdapter adapter = state.adapters[state.middle()];
+		adapter.notifyItemRangeChanged(0, Math.min(10, adapter.getItemCount()));
+		return state.hostAdapter.getItemCount();
+	}
+
+	@Benchmark
+	public int translateChangedWithPayload(JoinerState state) {
+		StubAdapter adapter = state.adapters[state.middle()];
+		adapter.notifyItemChanged(0, state);
+		return state.hostAdapter.getItemCount();
+	}
+
+	@Benchmark
+	public int translateInsertedAndRemoved(JoinerState state) {
+		StubAdapter adapter = state.adapters[state.middle()];
+		int itemCount = adapter.getItemCount();
+		adapter.setItemCount(itemCount + 10);
+		adapter.notifyItemRangeInserted(0, 10);
+		adapter.setItemCount(itemCount);
+		adapter.notifyItemRangeRemoved(0, 10);
+		return state.hostAdapter.getItemCount();
+	}
+
+	//the first item is moved to the end of joinable
+	@Benchmark
+	public int translateMoved(JoinerState state) {
+		StubAdapter adapter = state.adapters[state.middle()];
+		adapter.notifyItemMoved(0, adapter.getItemCount() - 1);
+		return state.hostAdapter.getItemCount();
+	}
+
+	//the first items are moved to the end of joinable, they are notified by single moves
+	@Benchmark
+	public int translateRangeMoved(JoinerState state) {
+		StubAdapter adapter = state.adapters[state.middle()];
+		adapter.notifyItemRangeMoved(0, adapter.getItemCount() - JoinerState.MOVED_COUNT,
+				JoinerState.MOVED_COUNT);
+		return state.hostAdapter.getItemCount();
+	}
+
+	//joinable is removed and added back to the same location
+	@Benchmark
+	public int removeAndAdd(JoinerState state) {
+		int location = state.middle();
+		JoinableAdapter joinable = state.joinableAdapters[location];
+		state.rvJoiner.remove(joinable);
+		state.rvJoiner.add(joinable, location);
+		return state.hostAdapter.getItemCount();
+	}
+
+	//the second half of joinables is removed and added back at once
+	@Benchmark
+	public int removeAllAndAddAll(JoinerState state) {
+		List<JoinableAdapter> half = Arrays.asList(state.joinableAdapters)
+				.subList(state.middle(), state.joinables);
+		state.rvJoiner.removeAll(half);
+		state.rvJoiner.addAll(half);
+		return state.hostAdapter.getItemCount();
+	}
+
+	//the first joinable is moved to the end and back
+	@Benchmark
+	public int moveAndBack(JoinerState state) {
+		JoinableAdapter joinable = state.joinableAdapters[0];
+		state.rvJoiner.move(joinable, state.joinables - 1);
+		state.rvJoiner.move(joinable, 0);
+		return state.hostAdapter.getItemCount();
+	}
+
+}
@@ -0,0 +1,78 @@
+package su.j2e.rvjoiner;
+
+import android.util.Log;
+
+/**
+ * Checks items of joinables with filter on background executor and applies results on main
+ * thread. Every joinable is a separate task, so joinables are filtered in parallel, and every
+ * result is applied as soon as it's ready. New filter cancels running tasks: they check filter
+ * generation every {@link #CANCEL_CHECK_INTERVAL} items, and their results are dropped.
+ */
+class FilterRunner {
+
+	private static final String TAG = FilterRunner.class.getName();
+	private static final int CANCEL_CHECK_INTERVAL = 256;
+
+	private final RvJoiner mRvJoiner;
+	private RvJoiner.ItemFilter mFilter;//main thread only
+	private volatile long mGeneration = 0;//written on main thread only
+
+	FilterRunner(RvJoiner rvJoiner) {
+		mRvJoiner = rvJoiner;
+	}
+
+	/**
+	 * Cancels running tasks
+	 * @param filter new filter, or null
+	 */
+	void setFilter(RvJoiner.ItemFilter filter) {
+		mFilter = filter;
+		mGeneration++;
+	}
+
+	/**
+	 * @param realCount count of joinable items to check
+	 * @param version joinable version, result is applied only if joinable isn't changed
+	 */
+	void submit(final RvJoiner.Joinable joinable, final int realCount, final int version) {
+		final RvJoiner.ItemFilter filter = mFilter;
+		final long generation = mGeneration;
+		mRvJoiner.getBackgroundExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				int[] positions = new int[Math.min(realCount, CANCEL_CHECK_INTERVAL)];
+				int size = 0;
+				VisibleMask mask;
+				RuntimeException error = null;
+				try {
+					for (int i = 0; i < realCount; i++) {
+						if (i % CANCEL_CHECK_INTERVAL == 0 && generation != mGeneration) return;
+						if (filter.accept(joinable, i)) {
+							if (size == positions.length) {
+								int[] grown = new int[Math.min(realCount, size * 2)];
+								System.arraycopy(positions, 0, grown, 0, size);
+								positions = grown;
+							}
+							positions[size++] = i;
+						}
+					}
+					mask = new VisibleMask(positions, size, realCount);
+				} catch (RuntimeException ex) {//handled on main thread, see applyFilterResult
+					Log.d(TAG, "submit: filter failed: " + ex);
+					mask = null;
+					error = ex;
+				}
+				final VisibleMask result = mask;
+				final RuntimeException resultError = error;
+				JoinerExecutors.getMainHandler().post(new Runnable() {
+					@Override
+					public void run() {
+						if (generation != mGeneration) return;//newer filter is set
+						mRvJoiner.applyFilterResult(joinable, version, result, resultError);
+					}
+				});
+			}
+		});
+	}
+
+}
@@ -0,0 +1,177 @@
+package su.j2e.rvjoiner;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Queues joinable notifications, sent from background threads, and applies them on main thread
+ * once per frame in a single batch (see {@link RvJoiner#DISPATCH_MODE_FRAME}). Frames are taken
+ * from Choreographer on API 16+, older devices just apply queue on the next main thread message.
+ * Updates are grouped by joinable (keeping their order inside joinable), so interleaved updates
+ * of several joinables still can be merged: they are translated to joined positions only when
+ * applied, and segments don't depend on each other. After data set change of joinable its item
+ * count is read again, so other queued updates of the same joinable are needless and dropped.
+ */
+class FrameDispatcher implements Runnable {
+
+	private final RvJoiner mRvJoiner;
+	private final Object mLock = new Object();
+	//guarded by mLock
+	private List<Update> mQueue = new ArrayList<>();
+	private Map<RvJoiner.Joinable, Boolean> mResetJoinables = new IdentityHashMap<>();
+	private boolean mScheduled = false;
+	private FrameCallback mFrameCallback;//created on demand, main thread only
+
+	FrameDispatcher(RvJoiner rvJoiner) {
+		mRvJoiner = rvJoiner;
+	}
+
+	/**
+	 * Can be called from any thread, see {@link UpdateBuffer#add(int, int, int, Object)}
+	 * @param toPosition to position for {@link UpdateBuffer#TYPE_MOVE} (item count is count of
+	 *                   moved items then), ignored for other types
+	 */
+	void enqueue(RvJoiner.Joinable joinable, int type, int positionStart, int itemCount,
+				 int toPosition, Object payload) {
+		boolean schedule;
+		synchronized (mLock) {
+			if (mResetJoinables.containsKey(joinable)) return;//reset will read it all anyway
+			if (type == UpdateBuffer.TYPE_RESET) {
+				removeQueued(joinable);
+				mResetJoinables.put(joinable, true);
+			}
+			mQueue.add(new Update(joinable, type, positionStart, itemCount, toPosition, payload));
+			schedule = !mScheduled;
+			mScheduled = true;
+		}
+		if (!schedule) return;
+		if (Looper.myLooper() == Looper.getMainLooper()) {
+			run();
+		} else {
+			JoinerExecutors.getMainHandler().post(this);
+		}
+	}
+
+	/**
+	 * Drops queued updates of joinable, for ex. when joiner reads its item count again
+	 */
+	void discard(RvJoiner.Joinable joinable) {
+		synchronized (mLock) {
+			removeQueued(joinable);
+			mResetJoinables.remove(joinable);
+		}
+	}
+
+	/**
+	 * Applies queued updates right now, main thread only. Called before every notification from
+	 * main thread, so it's cheap, when queue is empty.
+	 */
+	void flush() {
+		List<Update> updates;
+		synchronized (mLock) {
+			mScheduled = false;//scheduled flush, if any, just finds empty queue
+			if (mQueue.isEmpty()) return;
+			updates = mQueue;
+			mQueue = new ArrayList<>();
+			mResetJoinables.clear();
+		}
+		mRvJoiner.applyQueuedUpdates(groupByJoinable(updates));
+	}
+
+	//stable, O(n)
+	private static List<Update> groupByJoinable(List<Update> updates) {
+		Map<RvJoiner.Joinable, List<Update>> groups = new IdentityHashMap<>();
+		List<List<Update>> orderedGroups = new ArrayList<>();
+		for (Update update : updates) {
+			List<Update> group = groups.get(update.joinable);
+			if (group == null) {
+				group = new ArrayList<>();
+				groups.put(update.joinable, group);
+				orderedGroups.add(group);
+			}
+			group.add(update);
+		}
+		if (orderedGroups.size() == 1) return updates;
+		List<Update> grouped = new ArrayList<>(updates.size());
+		for (List<Update> group : orderedGroups) {
+			grouped.addAll(group);
+		}
+		return grouped;
+	}
+
+	//schedules flush on main thread
+	@Override
+	public void run() {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			if (mFrameCallback == null) {
+				mFrameCallback = new FrameCallback(this);
+			}
+			mFrameCallback.post();
+		} else {
+			JoinerExecutors.getMainHandler().post(new Runnable() {
+				@Override
+				public void run() {
+					flush();
+				}
+			});
+		}
+	}
+
+	private void removeQueued(RvJoiner.Joinable joinable) {
+		for (Iterator<Update> iterator = mQueue.iterator(); iterator.hasNext(); ) {
+			if (iterator.next().joinable == joinable) {
+				iterator.remove();
+			}
+		}
+	}
+
+	static class Update {
+
+		final RvJoiner.Joinable joinable;
+		final int type;
+		final int positionStart;
+		final int itemCount;
+		final int toPosition;
+		final Object payload;
+
+		private Update(RvJoiner.Joinable joinable, int type, int positionStart, int itemCount,
+					   int toPosition, Object payload) {
+			this.joinable = joinable;
+			this.type = type;
+			this.positionStart = positionStart;
+			this.itemCount = itemCount;
+			this.toPosition = toPosition;
+			this.payload = payload;
+		}
+
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private static class FrameCallback implements Choreographer.FrameCallback {
+
+		private final FrameDispatcher mDispatcher;
+
+		private FrameCallback(FrameDispatcher dispatcher) {
+			mDispatcher = dispatcher;
+		}
+
+		private void post() {
+			Choreographer.getInstance().postFrameCallback(this);
+		}
+
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			mDispatcher.flush();
+		}
+
+	}
+
+}
@@ -0,0 +1,139 @@
+package su.j2e.rvjoiner;
+
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+
+import java.util.Map;
+
+/**
+ * Immutable copy of joiner's index: joinables, their positions and types. It can be read from any
+ * thread without locks, and reflects joiner state after some applied change (see
+ * {@link RvJoiner#getIndexSnapshot()}). All lookups by position are O(log(joinable_count)),
+ * plus O(log(item_count)) for joinable, which is filtered.
+ * Item types can't be resolved here, because it needs joinable adapter, which isn't thread safe.
+ */
+public final class IndexSnapshot {
+
+	//shared between snapshots, until structure or types are changed
+	final RvJoiner.Joinable[] mJoinables;
+	final SparseIntArray[] mTypes;//real to joined types, never modified after publishing
+	final Map<RvJoiner.Joinable, Integer> mLocations;
+	//new for every snapshot: joined start of every joinable, and total count at the end
+	private final int[] mStarts;
+	//visible masks of filtered joinables (masks are immutable), null if nothing is filtered
+	private final VisibleMask[] mMasks;
+
+	IndexSnapshot(RvJoiner.Joinable[] joinables, SparseIntArray[] types,
+				  Map<RvJoiner.Joinable, Integer> locations, int[] starts, VisibleMask[] masks) {
+		mJoinables = joinables;
+		mTypes = types;
+		mLocations = locations;
+		mStarts = starts;
+		mMasks = masks;
+	}
+
+	public int getTotalCount() {
+		return mStarts[mJoinables.length];
+	}
+
+	public int getJoinableCount() {
+		return mJoinables.length;
+	}
+
+	/**
+	 * @param location location from [0 to {@link #getJoinableCount()})
+	 * @throws IndexOutOfBoundsException if location doesn't exist
+	 * @see #getJoinable(int) to get joinable by joined position
+	 */
+	public RvJoiner.Joinable getJoinableByLocation(int location) {
+		return mJoinables[location];
+	}
+
+	/**
+	 * @return location of joinable, or -1 if joinable isn't added
+	 */
+	public int getJoinableLocation(RvJoiner.Joinable joinable) {
+		Integer location = mLocations.get(joinable);
+		return location != null ? location : -1;
+	}
+
+	/**
+	 * @return joined position of the first item of joinable,
+	 * or {@link RecyclerView#NO_POSITION} if joinable isn't added
+	 */
+	public int getJoinableStart(RvJoiner.Joinable joinable) {
+		int location = getJoinableLocation(joinable);
+		return location >= 0 ? mStarts[location] : RecyclerView.NO_POSITION;
+	}
+
+	/**
+	 * @return item count of joinable, or 0 if joinable isn't added
+	 */
+	public int getJoinableItemCount(RvJoiner.Joinable joinable) {
+		int location = getJoinableLocation(joinable);
+		return location >= 0 ? mStarts[location + 1] - mStarts[location] : 0;
+	}
+
+	/**
+	 * @return joinable which handles item, or null if position doesn't exist
+	 */
+	public RvJoiner.Joinable getJoinable(int joinedPosition) {
+		int location = findLocation(joinedPosition);
+		return location >= 0 ? mJoinables[location] : null;
+	}
+
+	/**
+	 * @return position in joinable which handles item,
+	 * or {@link RecyclerView#NO_POSITION} if position doesn't exist
+	 */
+	public int getRealPosition(int joinedPosition) {
+		int location = findLocation(joinedPosition);
+		if (location < 0) return RecyclerView.NO_POSITION;
+		int offset = joinedPosition - mStarts[location];
+		VisibleMask mask = mMasks != null ? mMasks[location] : null;
+		return mask != null ? mask.getRealPosition(offset) : offset;
+	}
+
+	/**
+	 * @return total joined position, or {@link RecyclerView#NO_POSITION} if joinable isn't
+	 * added, or position doesn't exist or is filtered out
+	 */
+	public int getJoinedPosition(RvJoiner.Joinable joinable, int realPosition) {
+		int location = getJoinableLocation(joinable);
+		if (location < 0 || realPosition < 0) return RecyclerView.NO_POSITION;
+		VisibleMask mask = mMasks != null ? mMasks[location] : null;
+		int offset = mask != null ? mask.getOffset(realPosition) : realPosition;
+		if (offset < 0 || offset >= mStarts[location + 1] - mStarts[location]) {
+			return RecyclerView.NO_POSITION;
+		}
+		return mStarts[location] + offset;
+	}
+
+	/**
+	 * @param realType type of joinable adapter (one of {@link RvJoiner.Joinable#getTypeByIndex(int)})
+	 * @return joined type (type of joiner's adapter),
+	 * or {@link RecyclerView#INVALID_TYPE} if joinable isn't added or hasn't type
+	 */
+	public int getJoinedType(RvJoiner.Joinable joinable, int realType) {
+		int location = getJoinableLocation(joinable);
+		return location >= 0 ? mTypes[location].get(realType, RecyclerView.INVALID_TYPE)
+				: RecyclerView.INVALID_TYPE;
+	}
+
+	//return location of (non empty) joinable, which contains position, or -1
+	private int findLocation(int joinedPosition) {
+		if (joinedPosition < 0 || joinedPosition >= getTotalCount()) return -1;
+		int low = 0;
+		int high = mJoinables.length - 1;
+		while (low < high) {//last location with start <= position
+			int middle = (low + high + 1) >>> 1;
+			if (mStarts[middle] <= joinedPosition) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+}
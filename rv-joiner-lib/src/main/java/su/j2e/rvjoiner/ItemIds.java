@@ -0,0 +1,45 @@
+package su.j2e.rvjoiner;
+
+/**
+ * Mixes joinable namespace into item ids (see {@link RvJoiner#setIdMode(int)}). Both mixes are
+ * bijective for a fixed namespace, so different ids of the same joinable never collide.
+ */
+final class ItemIds {
+
+	//sign bit isn't used, so high bits ids are never negative (and never NO_ID)
+	static final int MAX_HIGH_BITS_NAMESPACE = (1 << 15) - 1;
+	private static final int LOW_BITS = 48;
+	private static final long LOW_BITS_MASK = (1L << LOW_BITS) - 1;
+
+	private ItemIds() {}
+
+	/**
+	 * @return namespace in 15 high bits (after sign bit), and 48 low bits of id
+	 */
+	static long mixHighBits(int namespace, long id) {
+		return ((long) namespace << LOW_BITS) | (id & LOW_BITS_MASK);
+	}
+
+	/**
+	 * @param salt salt of namespace, see {@link #getSalt(int)}
+	 * @return hash of id, ids of different namespaces collide with probability about 2^-64
+	 */
+	static long mixHash(long salt, long id) {
+		return fmix64(id ^ salt);
+	}
+
+	static long getSalt(int namespace) {
+		return fmix64(namespace + 1L);
+	}
+
+	//murmur3 64-bit finalizer, it's bijective
+	private static long fmix64(long k) {
+		k ^= k >>> 33;
+		k *= 0xff51afd7ed558ccdL;
+		k ^= k >>> 33;
+		k *= 0xc4ceb9fe1a85ec53L;
+		k ^= k >>> 33;
+		return k;
+	}
+
+}
@@ -10,10 +10,11 @@ import android.support.v7.widget.RecyclerView;
  * in joined adapter. This class can be helpful.
  * {@link su.j2e.rvjoiner.RvJoiner.RealPositionProvider}
  */
-public class JoinableAdapter implements RvJoiner.Joinable {
+public class JoinableAdapter implements RvJoiner.Joinable, RvJoiner.SharedTypes {
 
 	private RecyclerView.Adapter mAdapter;
 	private int[] mTypes;
+	private Object mSharedTypeKey;
 
 	/**
 	 * @param adapter your adapter instance
@@ -55,4 +56,26 @@ public class JoinableAdapter implements RvJoiner.Joinable {
 		return mTypes[typeIndex];
 	}
 
+	/**
+	 * Allows joinables with the same key to share view holders. Use it, if you join several
+	 * adapters of the same kind (for ex. several instances of one adapter class), so view holders
+	 * created by one adapter can be bound by the others. Real types with the same value become
+	 * one joined type. Should be called before adding to {@link RvJoiner}.
+	 * @param sharedTypeKey any key (compared with equals), or null to not share types (default)
+	 * @see su.j2e.rvjoiner.RvJoiner.SharedTypes
+	 */
+	public void setSharedTypeKey(@Nullable Object sharedTypeKey) {
+		mSharedTypeKey = sharedTypeKey;
+	}
+
+	@Nullable
+	public Object getSharedTypeKey() {
+		return mSharedTypeKey;
+	}
+
+	@Override
+	public Object getTypeKey(int typeIndex) {
+		return mSharedTypeKey != null ? new TypeKey(mSharedTypeKey, mTypes[typeIndex]) : null;
+	}
+
 }
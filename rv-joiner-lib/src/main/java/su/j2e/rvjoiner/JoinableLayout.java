@@ -2,15 +2,22 @@ package su.j2e.rvjoiner;
 
 import android.support.annotation.LayoutRes;
 import android.support.annotation.Nullable;
+import android.support.v4.view.AsyncLayoutInflater;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import java.util.LinkedList;
+import java.util.Queue;
 
 /**
  * Wraps layout to use in {@link RvJoiner}.
+ * Joinable layouts with the same layout, type and callback share view holders, because their
+ * views are inflated the same way.
  */
-public class JoinableLayout implements RvJoiner.Joinable {
+public class JoinableLayout implements RvJoiner.Joinable, RvJoiner.SharedTypes {
 
 	public interface Callback {
 
@@ -20,7 +27,8 @@ public class JoinableLayout implements RvJoiner.Joinable {
          * method to save links to child views for later changing values (for example, text in
          * TextView), you should be aware of RecyclerView behavior - it can recycle your layout
          * and recreate it later, and all your changes will be lost, so ensure you also bind your
-         * current data in onInflateComplete callback.
+         * current data in onInflateComplete callback. Always runs on main thread, even if
+         * {@link JoinableLayout#setAsyncInflation(boolean)} is on.
 		 * @param view just inflated view
 		 * @param parent view parent
 		 */
@@ -84,6 +92,25 @@ public class JoinableLayout implements RvJoiner.Joinable {
 		mAdapter.setVisible(visible);
 	}
 
+	public boolean isAsyncInflation() {
+		return mAdapter.mAsyncInflation;
+	}
+
+	/**
+	 * Turns on asynchronous inflation for big layouts, which are expensive to inflate on main
+	 * thread. Layout is inflated on background thread in advance, when joiner's adapter is set to
+	 * recycler view, and handed to recycler, when it asks for view. If view isn't ready yet, empty
+	 * placeholder is shown, and inflated view is added to it when ready. NOTE: in this case view
+	 * passed to {@link Callback#onInflateComplete(View, ViewGroup)} isn't a direct child of
+	 * recycler view, but a child of placeholder. Layout should support inflation off main
+	 * thread (see {@link AsyncLayoutInflater}). Should be called before adding to
+	 * {@link RvJoiner}.
+	 * @param asyncInflation true to inflate asynchronously, false by default
+	 */
+	public void setAsyncInflation(boolean asyncInflation) {
+		mAdapter.mAsyncInflation = asyncInflation;
+	}
+
 	@Override
 	public RecyclerView.Adapter getAdapter() {
 		return mAdapter;
@@ -99,7 +126,14 @@ public class JoinableLayout implements RvJoiner.Joinable {
 		return mItemType;//doesn't matter index (we have only one type)
 	}
 
-	private static class Adapter extends RecyclerView.Adapter<Adapter.LayoutVh> {
+	@Override
+	public Object getTypeKey(int typeIndex) {
+		return new TypeKey(JoinableLayout.class, mAdapter.mLayoutResId, mItemType,
+				mAdapter.mCallback, mAdapter.mAsyncInflation);
+	}
+
+	private static class Adapter extends RecyclerView.Adapter<Adapter.LayoutVh>
+			implements AsyncLayoutInflater.OnInflateFinishedListener {
 
 		private int mLayoutResId;
 		private int mItemType;
@@ -107,6 +141,13 @@ public class JoinableLayout implements RvJoiner.Joinable {
 		private Callback mCallback;
 		private boolean mVisible = true;
 
+		//async inflation
+		private boolean mAsyncInflation = false;
+		private boolean mInflating = false;
+		private View mInflatedView;//inflated in advance
+		private Queue<FrameLayout> mPlaceholders = new LinkedList<>();//waiting for view
+		private int mAttachedCount = 0;//recycler views, which we are attached to
+
 		//pass stableId == RecyclerView.NO_ID if stable ids not used
 		private Adapter(int layoutResId, int itemType, Callback callback, long stableId) {
 			mLayoutResId = layoutResId;
@@ -118,6 +159,9 @@ public class JoinableLayout implements RvJoiner.Joinable {
 
 		@Override
 		public LayoutVh onCreateViewHolder(ViewGroup parent, int viewType) {
+			if (mAsyncInflation) {
+				return createAsyncViewHolder(parent);
+			}
 			View view = LayoutInflater.from(parent.getContext())
 					.inflate(mLayoutResId, parent, false);
 			if (mCallback != null) {
@@ -127,7 +171,91 @@ public class JoinableLayout implements RvJoiner.Joinable {
 		}
 
 		@Override
-		public void onBindViewHolder(LayoutVh holder, int position) {}
+		public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+			mAttachedCount++;
+			if (mAsyncInflation && mInflatedView == null) {
+				inflateAsync(recyclerView);//in advance
+			}
+		}
+
+		@Override
+		public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+			if (--mAttachedCount == 0) {
+				mInflatedView = null;//don't hold view (and context) when not needed
+				mPlaceholders.clear();//filled on bind, if recycler reuses them later
+			}
+		}
+
+		private LayoutVh createAsyncViewHolder(ViewGroup parent) {
+			if (mInflatedView != null) {
+				View view = mInflatedView;
+				mInflatedView = null;
+				if (mCallback != null) {
+					mCallback.onInflateComplete(view, parent);
+				}
+				return new LayoutVh(view);
+			}
+			FrameLayout placeholder = new FrameLayout(parent.getContext());
+			placeholder.setLayoutParams(new ViewGroup.LayoutParams(
+					ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+			mPlaceholders.add(placeholder);
+			inflateAsync(parent);
+			LayoutVh holder = new LayoutVh(placeholder);
+			holder.mPlaceholder = placeholder;
+			return holder;
+		}
+
+		//placeholder can be left empty (we were detached) or be created by other shared adapter
+		private void fillPlaceholder(FrameLayout placeholder) {
+			if (placeholder.getChildCount() > 0 || mPlaceholders.contains(placeholder)) return;
+			if (mInflatedView != null) {
+				View view = mInflatedView;
+				mInflatedView = null;
+				placeholder.addView(view);
+				if (mCallback != null) {
+					mCallback.onInflateComplete(view, placeholder);
+				}
+			} else {
+				mPlaceholders.add(placeholder);
+				inflateAsync(placeholder);
+			}
+		}
+
+		private void inflateAsync(ViewGroup parent) {
+			if (!mInflating) {
+				mInflating = true;
+				new AsyncLayoutInflater(parent.getContext()).inflate(mLayoutResId, parent, this);
+			}
+		}
+
+		//called on main thread
+		@Override
+		public void onInflateFinished(View view, int resid, ViewGroup parent) {
+			mInflating = false;
+			if (mAttachedCount == 0) return;//late result, don't hold view (and context)
+			FrameLayout placeholder = mPlaceholders.poll();
+			while (placeholder != null && placeholder.getChildCount() > 0) {//filled by other
+				placeholder = mPlaceholders.poll();
+			}
+			if (placeholder == null) {
+				mInflatedView = view;
+				return;
+			}
+			placeholder.addView(view);
+			if (mCallback != null) {
+				mCallback.onInflateComplete(view, placeholder);
+			}
+			if (!mPlaceholders.isEmpty()) {
+				inflateAsync(parent);
+			}
+		}
+
+		@Override
+		public void onBindViewHolder(LayoutVh holder, int position) {
+			if (holder.mPlaceholder != null) {
+				fillPlaceholder(holder.mPlaceholder);
+			}
+		}
 
 		@Override
 		public int getItemCount() {
@@ -160,6 +288,8 @@ public class JoinableLayout implements RvJoiner.Joinable {
 
 		protected static class LayoutVh extends RecyclerView.ViewHolder {
 
+			private FrameLayout mPlaceholder;//null if view was inflated in advance or synchronously
+
 			public LayoutVh(View itemView) {
 				super(itemView);
 			}
@@ -0,0 +1,237 @@
+package su.j2e.rvjoiner;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.util.SparseBooleanArray;
+import android.view.ViewGroup;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Joinable for big data sets, which shouldn't be held in memory. Total item count is known in
+ * advance, items are loaded by pages on background executor, when they come within prefetch
+ * distance of bound positions. Not loaded items are bound as placeholders (null item), and when
+ * page arrives, only its range is notified. Loaded pages are kept in LRU cache, so cold pages
+ * are dropped and loaded again if needed. Stable ids aren't supported.
+ * @param <T> type of data item
+ * @param <VH> type of view holder
+ */
+public class JoinablePaged<T, VH extends RecyclerView.ViewHolder> implements RvJoiner.Joinable {
+
+	private static final String TAG = JoinablePaged.class.getName();
+
+	private static final int DEFAULT_MAX_CACHED_PAGES = 10;
+
+	public interface PageLoader<T> {
+
+		/**
+		 * Called on background thread.
+		 * @param offset position of the first item of page
+		 * @param count count of items in page (page size, or less for the last page)
+		 * @return loaded items, list can be shorter than count (missed items stay placeholders)
+		 */
+		List<T> loadPage(int offset, int count);
+
+	}
+
+	public interface ItemBinder<T, VH extends RecyclerView.ViewHolder> {
+
+		VH onCreateViewHolder(ViewGroup parent);
+
+		/**
+		 * @param position position in joinable
+		 * @param item loaded item, or null if it isn't loaded yet (bind placeholder)
+		 */
+		void onBindViewHolder(VH holder, int position, @Nullable T item);
+
+	}
+
+	private Adapter<T, VH> mAdapter;
+	private int mItemType;
+
+	/**
+	 * @param totalCount count of all items
+	 * @param pageSize count of items loaded at once
+	 * @param loader loader of pages
+	 * @param binder binder of items and placeholders
+	 * @param itemType type constant, or 0, or other value if you don't need it
+	 */
+	public JoinablePaged(int totalCount, int pageSize, @NonNull PageLoader<T> loader,
+						 @NonNull ItemBinder<T, VH> binder, int itemType) {
+		if (totalCount < 0 || pageSize <= 0) {
+			throw new IllegalArgumentException("Invalid total count " + totalCount
+					+ " or page size " + pageSize);
+		}
+		mItemType = itemType;
+		mAdapter = new Adapter<>(totalCount, pageSize, loader, binder, itemType);
+	}
+
+	/**
+	 * The same as {@link #JoinablePaged(int, int, PageLoader, ItemBinder, int)} with 0 type
+	 */
+	public JoinablePaged(int totalCount, int pageSize, @NonNull PageLoader<T> loader,
+						 @NonNull ItemBinder<T, VH> binder) {
+		this(totalCount, pageSize, loader, binder, 0);
+	}
+
+	/**
+	 * Sets how many items before and after bound position should be loaded.
+	 * @param prefetchDistance distance in items, page size by default
+	 */
+	public void setPrefetchDistance(int prefetchDistance) {
+		mAdapter.mPrefetchDistance = Math.max(0, prefetchDistance);
+	}
+
+	/**
+	 * Sets max count of pages held in memory. It should be enough for visible items and prefetch
+	 * distance, otherwise pages are loaded again and again. Should be called before items are
+	 * bound.
+	 * @param maxCachedPages max count of pages, 10 by default
+	 */
+	public void setMaxCachedPages(int maxCachedPages) {
+		if (maxCachedPages <= 0) {
+			throw new IllegalArgumentException("Invalid max cached pages " + maxCachedPages);
+		}
+		mAdapter.mMaxCachedPages = maxCachedPages;
+	}
+
+	/**
+	 * Sets executor for page loading.
+	 * @param executor executor, or null to use default one (shared by joiners)
+	 */
+	public void setExecutor(@Nullable Executor executor) {
+		mAdapter.mExecutor = executor;
+	}
+
+	/**
+	 * @param position position in joinable
+	 * @return loaded item, or null if it isn't loaded (doesn't start loading)
+	 */
+	@Nullable
+	public T getItem(int position) {
+		return mAdapter.getItem(position);
+	}
+
+	@Override
+	public RecyclerView.Adapter getAdapter() {
+		return mAdapter;
+	}
+
+	@Override
+	public int getTypeCount() {
+		return 1;
+	}
+
+	@Override
+	public int getTypeByIndex(int typeIndex) {
+		return mItemType;
+	}
+
+	private static class Adapter<T, VH extends RecyclerView.ViewHolder>
+			extends RecyclerView.Adapter<VH> {
+
+		private final int mTotalCount;
+		private final int mPageSize;
+		private final PageLoader<T> mLoader;
+		private final ItemBinder<T, VH> mBinder;
+		private final int mItemType;
+		private int mPrefetchDistance;
+		private int mMaxCachedPages = DEFAULT_MAX_CACHED_PAGES;
+		private Executor mExecutor;
+
+		//main thread only
+		private LruCache<Integer, List<T>> mPages;//created on demand
+		private SparseBooleanArray mLoadingPages = new SparseBooleanArray();
+
+		private Adapter(int totalCount, int pageSize, PageLoader<T> loader,
+						ItemBinder<T, VH> binder, int itemType) {
+			mTotalCount = totalCount;
+			mPageSize = pageSize;
+			mLoader = loader;
+			mBinder = binder;
+			mItemType = itemType;
+			mPrefetchDistance = pageSize;
+		}
+
+		@Override
+		public VH onCreateViewHolder(ViewGroup parent, int viewType) {
+			return mBinder.onCreateViewHolder(parent);
+		}
+
+		@Override
+		public void onBindViewHolder(VH holder, int position) {
+			mBinder.onBindViewHolder(holder, position, getItem(position));
+			loadAround(position);
+		}
+
+		@Override
+		public int getItemCount() {
+			return mTotalCount;
+		}
+
+		@Override
+		public int getItemViewType(int position) {
+			return mItemType;
+		}
+
+		private T getItem(int position) {
+			List<T> page = getPages().get(position / mPageSize);
+			int index = position % mPageSize;
+			return page != null && index < page.size() ? page.get(index) : null;
+		}
+
+		private LruCache<Integer, List<T>> getPages() {
+			if (mPages == null) {
+				mPages = new LruCache<>(mMaxCachedPages);
+			}
+			return mPages;
+		}
+
+		//starts loading of pages within prefetch distance, which aren't loaded or loading
+		private void loadAround(int position) {
+			int firstPage = Math.max(0, position - mPrefetchDistance) / mPageSize;
+			int lastPage = Math.min(mTotalCount - 1, position + mPrefetchDistance) / mPageSize;
+			for (int page = firstPage; page <= lastPage; page++) {
+				if (!mLoadingPages.get(page) && getPages().get(page) == null) {
+					loadPage(page);
+				}
+			}
+		}
+
+		private void loadPage(final int page) {
+			mLoadingPages.put(page, true);
+			final int offset = page * mPageSize;
+			final int count = Math.min(mPageSize, mTotalCount - offset);
+			Executor executor = mExecutor != null
+					? mExecutor : JoinerExecutors.getBackgroundExecutor();
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					List<T> items = null;
+					try {
+						items = mLoader.loadPage(offset, count);
+					} catch (RuntimeException ex) {
+						Log.e(TAG, "loadPage: can't load page " + page, ex);
+					}
+					final List<T> loaded = items;
+					JoinerExecutors.getMainHandler().post(new Runnable() {
+						@Override
+						public void run() {
+							mLoadingPages.delete(page);
+							if (loaded != null) {//else it will be loaded again on next bind
+								getPages().put(page, loaded);
+								notifyItemRangeChanged(offset, count);
+							}
+						}
+					});
+				}
+			});
+		}
+
+	}
+
+}
@@ -0,0 +1,58 @@
+package su.j2e.rvjoiner;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads for joiner background work (diffing, filtering, page loading). Default background
+ * executor is shared between all joiners and created on first use. Its threads are daemons with
+ * background priority, so they don't compete with main thread.
+ */
+final class JoinerExecutors {
+
+	private static final int THREAD_COUNT =
+			Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+	private static ExecutorService sBackgroundExecutor;
+	private static Handler sMainHandler;
+
+	private JoinerExecutors() {}
+
+	static synchronized Executor getBackgroundExecutor() {
+		if (sBackgroundExecutor == null) {
+			sBackgroundExecutor = Executors.newFixedThreadPool(THREAD_COUNT, new ThreadFactory() {
+
+				private final AtomicInteger mCount = new AtomicInteger();
+
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					Thread thread = new Thread(new Runnable() {
+						@Override
+						public void run() {
+							Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+							runnable.run();
+						}
+					}, "RvJoiner #" + mCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return sBackgroundExecutor;
+	}
+
+	static synchronized Handler getMainHandler() {
+		if (sMainHandler == null) {
+			sMainHandler = new Handler(Looper.getMainLooper());
+		}
+		return sMainHandler;
+	}
+
+}
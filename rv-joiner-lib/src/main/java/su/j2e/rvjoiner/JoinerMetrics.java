@@ -0,0 +1,136 @@
+package su.j2e.rvjoiner;
+
+import java.util.Arrays;
+
+/**
+ * Ready to use {@link RvJoiner.MetricsListener}, which aggregates metrics: counters of index
+ * rebuilds, translated notifications and fallbacks, histograms of rebuild durations and the last
+ * index memory. Metrics are written on main thread, but can be read from any thread, for ex. to
+ * send them to analytics periodically. One instance can be set to several joiners.
+ */
+public class JoinerMetrics implements RvJoiner.MetricsListener {
+
+	/**
+	 * Histogram bucket 0 counts durations less than 1 microsecond, bucket i counts durations from
+	 * 2^(i - 1) to 2^i microseconds, and the last bucket counts all longer ones.
+	 */
+	public static final int HISTOGRAM_BUCKET_COUNT = 20;
+
+	private static final int REBUILD_REASON_COUNT = 3;
+	private static final int UPDATE_KIND_COUNT = 5;
+	private static final int FALLBACK_REASON_COUNT = 2;
+
+	private final long[] mRebuildCounts = new long[REBUILD_REASON_COUNT];
+	private final long[] mRebuildNanos = new long[REBUILD_REASON_COUNT];
+	private final long[][] mRebuildHistograms =
+			new long[REBUILD_REASON_COUNT][HISTOGRAM_BUCKET_COUNT];
+	private final long[] mUpdateCounts = new long[UPDATE_KIND_COUNT];
+	private final long[] mUpdateItemCounts = new long[UPDATE_KIND_COUNT];
+	private final long[] mFallbackCounts = new long[FALLBACK_REASON_COUNT];
+	private final long[] mFallbackItemCounts = new long[FALLBACK_REASON_COUNT];
+	private long mIndexBytes = 0;
+
+	@Override
+	public synchronized void onIndexRebuilt(int reason, int joinableCount, long durationNanos,
+											long indexBytes) {
+		mRebuildCounts[reason]++;
+		mRebuildNanos[reason] += durationNanos;
+		mRebuildHistograms[reason][getBucket(durationNanos)]++;
+		mIndexBytes = indexBytes;
+	}
+
+	@Override
+	public synchronized void onUpdateTranslated(int kind, int itemCount) {
+		mUpdateCounts[kind]++;
+		mUpdateItemCounts[kind] += itemCount;
+	}
+
+	@Override
+	public synchronized void onFallback(int reason, int itemCount) {
+		mFallbackCounts[reason]++;
+		mFallbackItemCounts[reason] += itemCount;
+	}
+
+	/**
+	 * @param reason one of {@link RvJoiner.MetricsListener} REBUILD_ constants
+	 */
+	public synchronized long getRebuildCount(int reason) {
+		return mRebuildCounts[reason];
+	}
+
+	/**
+	 * @param reason one of {@link RvJoiner.MetricsListener} REBUILD_ constants
+	 * @return total time of rebuilds
+	 */
+	public synchronized long getRebuildNanos(int reason) {
+		return mRebuildNanos[reason];
+	}
+
+	/**
+	 * @param reason one of {@link RvJoiner.MetricsListener} REBUILD_ constants
+	 * @return copy of rebuild durations histogram (see {@link #HISTOGRAM_BUCKET_COUNT})
+	 */
+	public synchronized long[] getRebuildHistogram(int reason) {
+		return Arrays.copyOf(mRebuildHistograms[reason], HISTOGRAM_BUCKET_COUNT);
+	}
+
+	/**
+	 * @param kind one of {@link RvJoiner.MetricsListener} UPDATE_ constants
+	 */
+	public synchronized long getUpdateCount(int kind) {
+		return mUpdateCounts[kind];
+	}
+
+	/**
+	 * @param kind one of {@link RvJoiner.MetricsListener} UPDATE_ constants
+	 * @return total count of items in notified ranges
+	 */
+	public synchronized long getUpdateItemCount(int kind) {
+		return mUpdateItemCounts[kind];
+	}
+
+	/**
+	 * @param reason one of {@link RvJoiner.MetricsListener} FALLBACK_ constants
+	 */
+	public synchronized long getFallbackCount(int reason) {
+		return mFallbackCounts[reason];
+	}
+
+	/**
+	 * @param reason one of {@link RvJoiner.MetricsListener} FALLBACK_ constants
+	 * @return total count of items, which lost precise notifications
+	 */
+	public synchronized long getFallbackItemCount(int reason) {
+		return mFallbackItemCounts[reason];
+	}
+
+	/**
+	 * @return approximate index memory after the last rebuild (of the last joiner rebuilt)
+	 */
+	public synchronized long getIndexBytes() {
+		return mIndexBytes;
+	}
+
+	/**
+	 * Clears all metrics, for ex. after they are sent.
+	 */
+	public synchronized void reset() {
+		for (int i = 0; i < REBUILD_REASON_COUNT; i++) {
+			Arrays.fill(mRebuildHistograms[i], 0);
+		}
+		Arrays.fill(mRebuildCounts, 0);
+		Arrays.fill(mRebuildNanos, 0);
+		Arrays.fill(mUpdateCounts, 0);
+		Arrays.fill(mUpdateItemCounts, 0);
+		Arrays.fill(mFallbackCounts, 0);
+		Arrays.fill(mFallbackItemCounts, 0);
+		mIndexBytes = 0;
+	}
+
+	private static int getBucket(long durationNanos) {
+		long micros = durationNanos / 1000;
+		if (micros <= 0) return 0;
+		return Math.min(64 - Long.numberOfLeadingZeros(micros), HISTOGRAM_BUCKET_COUNT - 1);
+	}
+
+}
@@ -0,0 +1,57 @@
+package su.j2e.rvjoiner;
+
+/**
+ * Finds joinables, which can stay in place when joinables are reordered: it's the heaviest
+ * increasing subsequence of their old locations in new order, so other (moved) joinables have
+ * the least total weight. Prefix maximums are kept in a Fenwick tree, so it's O(J * log(J)).
+ */
+final class MovePlanner {
+
+	private MovePlanner() {}
+
+	/**
+	 * @param oldLocations distinct non negative old locations, in new order
+	 * @param weights positive weights (cost of moving)
+	 * @return flags by new location, true if joinable should stay in place
+	 */
+	static boolean[] findStaying(int[] oldLocations, long[] weights) {
+		int size = oldLocations.length;
+		int maxLocation = -1;
+		for (int location : oldLocations) {
+			maxLocation = Math.max(maxLocation, location);
+		}
+		//1-based tree by old location: max weight of subsequence ending there, and its last element
+		long[] treeWeights = new long[maxLocation + 2];
+		int[] treeEnds = new int[maxLocation + 2];
+		long[] bestWeights = new long[size];
+		int[] previous = new int[size];
+		int bestEnd = -1;
+		for (int i = 0; i < size; i++) {
+			long bestBefore = 0;
+			int end = -1;
+			for (int k = oldLocations[i]; k > 0; k -= k & -k) {//locations less than current
+				if (treeWeights[k] > bestBefore) {
+					bestBefore = treeWeights[k];
+					end = treeEnds[k];
+				}
+			}
+			bestWeights[i] = bestBefore + weights[i];
+			previous[i] = end;
+			for (int k = oldLocations[i] + 1; k < treeWeights.length; k += k & -k) {
+				if (bestWeights[i] > treeWeights[k]) {
+					treeWeights[k] = bestWeights[i];
+					treeEnds[k] = i;
+				}
+			}
+			if (bestEnd < 0 || bestWeights[i] > bestWeights[bestEnd]) {
+				bestEnd = i;
+			}
+		}
+		boolean[] staying = new boolean[size];
+		for (int i = bestEnd; i >= 0; i = previous[i]) {
+			staying[i] = true;
+		}
+		return staying;
+	}
+
+}
@@ -1,18 +1,30 @@
 package su.j2e.rvjoiner;
 
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.RecyclerView.ViewHolder;
 import android.util.Log;
 import android.util.SparseArray;
+import android.util.SparseBooleanArray;
 import android.util.SparseIntArray;
 import android.view.View;
 import android.view.ViewGroup;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * Joins several {@link RecyclerView.Adapter}, layouts and other {@link RvJoiner.Joinable} into
@@ -28,6 +40,7 @@ import java.util.Map;
  * </pre>
  * If you have joined position and want to get info (such a corresponded joinable, type and
  * real position), you can use {@link RvJoiner#getPositionInfo(int)}.
+ * Joiner can be added to other joiner using {@link RvJoiner#asJoinable()}.
  * @see su.j2e.rvjoiner.RvJoiner.Joinable
  * @see JoinableAdapter
  * @see JoinableLayout
@@ -57,13 +70,167 @@ public class RvJoiner {
 
 	}
 
+	/**
+	 * Optional interface for {@link Joinable}, which allows to share joined types (and so recycled
+	 * view holders) between joinables. Every joinable gets own joined types by default, but if
+	 * joinables return equal type keys, they get the same joined type, and view holder created by
+	 * one of them can be bound by the other. So, use equal keys only if view holders created for
+	 * these types are fully interchangeable (for ex. the same adapter class and real type).
+	 * @see JoinableAdapter#setSharedTypeKey(Object)
+	 */
+	public interface SharedTypes {
+
+		/**
+		 * @param typeIndex type index (from 0 inclusive to {@link Joinable#getTypeCount()} exclusive)
+		 * @return key of type (compared with equals), or null if type shouldn't be shared
+		 */
+		Object getTypeKey(int typeIndex);
+
+	}
+
+	/**
+	 * Callback to replace joinable data with new snapshots using
+	 * {@link #submitSnapshot(Joinable, List, SnapshotCallback)}. Snapshot lists are compared on
+	 * background thread, so they shouldn't be modified after submit.
+	 * @param <T> type of data item
+	 */
+	public interface SnapshotCallback<T> {
+
+		/**
+		 * Called on main thread
+		 * @return current data of joinable adapter
+		 */
+		List<T> getData();
+
+		/**
+		 * Called on main thread, when snapshot is compared with current data. Should replace
+		 * adapter data with snapshot WITHOUT calling notify methods (joiner notifies about
+		 * changes itself).
+		 */
+		void setData(List<T> data);
+
+		/**
+		 * Called on background thread
+		 * @return stable id of item, items with the same id are considered as the same item
+		 */
+		long getItemId(T item);
+
+		/**
+		 * Called on background thread, only for items with the same id
+		 * @return true if item view doesn't need to be rebound
+		 */
+		boolean areContentsTheSame(T oldItem, T newItem);
+
+	}
+
+	/**
+	 * Predicate for {@link #setFilter(ItemFilter, boolean)}. It's called on background threads,
+	 * in parallel for different joinables, so it should read joinable data in a thread safe way.
+	 * Items, which are inserted or changed while filter is set, are checked on main thread.
+	 * {@link JoinableLayout}s are never checked. If filter throws, while joinable data isn't
+	 * changed, all items of joinable are shown, and exception is rethrown on main thread.
+	 */
+	public interface ItemFilter {
+
+		/**
+		 * @param joinable joinable, which handles item
+		 * @param realPosition position in joinable
+		 * @return true if item should be shown
+		 */
+		boolean accept(Joinable joinable, int realPosition);
+
+	}
+
+	/**
+	 * Listener of joiner engine metrics, see {@link #setMetricsListener(MetricsListener)}. Methods
+	 * are called on main thread, right after measured work, so they should be fast (just count).
+	 * @see JoinerMetrics
+	 */
+	public interface MetricsListener {
+
+		/** Notify method was called on joined adapter, so counts of all joinables are re-read */
+		int REBUILD_DATA_SET_CHANGED = 0;
+		/** Joinable was added or removed */
+		int REBUILD_STRUCTURE_CHANGED = 1;
+		/** Index snapshot was published (see {@link #getIndexSnapshot()}) */
+		int REBUILD_SNAPSHOT = 2;
+
+		int UPDATE_CHANGED = 0;
+		int UPDATE_INSERTED = 1;
+		int UPDATE_REMOVED = 2;
+		int UPDATE_MOVED = 3;
+		int UPDATE_DATA_SET_CHANGED = 4;
+
+		/** Joinable notified about data set change, so the whole joined list is reset */
+		int FALLBACK_DATA_SET_CHANGED = 0;
+		/**
+		 * Range move is too big for single moves (or moved items of filtered joinable can be not
+		 * adjacent), so it's notified as removal and insertion
+		 */
+		int FALLBACK_MOVE_SPLIT = 1;
+
+		/**
+		 * @param reason one of REBUILD_ constants
+		 * @param joinableCount count of joinables in index
+		 * @param durationNanos rebuild time
+		 * @param indexBytes approximate memory used by index after rebuild
+		 */
+		void onIndexRebuilt(int reason, int joinableCount, long durationNanos, long indexBytes);
+
+		/**
+		 * Called for every notification from joinable, which has got to joined adapter
+		 * @param kind one of UPDATE_ constants
+		 * @param itemCount count of items in range (0 for data set change)
+		 */
+		void onUpdateTranslated(int kind, int itemCount);
+
+		/**
+		 * Called when notification from joinable can't be translated precisely
+		 * @param reason one of FALLBACK_ constants
+		 * @param itemCount count of joined items, which lose precise notifications
+		 */
+		void onFallback(int reason, int itemCount);
+
+	}
+
+	/**
+	 * Item ids of joinables are passed as is, so they should be unique across all joinables
+	 */
+	public static final int ID_MODE_PASS_THROUGH = 0;
+	/**
+	 * Id has joinable namespace in high bits and 48 low bits of joinable item id, so item ids
+	 * should fit into 48 bits (higher bits are dropped). Up to 32768 joinables, adding more
+	 * throws IllegalStateException.
+	 */
+	public static final int ID_MODE_HIGH_BITS = 1;
+	/**
+	 * Joinable item id is mixed with joinable namespace by 64-bit hash. Ids of the same joinable
+	 * never collide, and ids of different joinables collide with negligible probability.
+	 */
+	public static final int ID_MODE_HASH = 2;
+
+	/**
+	 * Notifications of joinables are applied immediately on the thread they are sent from
+	 */
+	public static final int DISPATCH_MODE_IMMEDIATE = 0;
+	/**
+	 * Notifications of joinables can be sent from any thread. Notifications from background
+	 * threads are queued and applied on main thread once per frame in a single batch, so index is
+	 * updated and joined adapter is notified at most once per frame. Notifications from main
+	 * thread are applied immediately (after queued ones).
+	 */
+	public static final int DISPATCH_MODE_FRAME = 1;
+
 	private static final String TAG = RvJoiner.class.getName();
 
 	private HostAdapter mHostAdapter;
 	private boolean mAutoUpdate;
+	private Executor mBackgroundExecutor;
+	private SnapshotDiffer mSnapshotDiffer;
+	private NestedJoinable mNestedJoinable;//created on demand
 
 	//to find correspond observer for unregister
-	private Map<Joinable, DataObserver> mJoinableToObserver = new HashMap<>();
+	private Map<Joinable, DataObserver> mJoinableToObserver = new IdentityHashMap<>();
 
 	/**
 	 * @param autoUpdate if true, joiner will listen for data updates in joined adapters,
@@ -104,19 +271,14 @@ public class RvJoiner {
 	 * @return false if already added
 	 * @throws IllegalArgumentException if joinable is null
 	 * @throws IndexOutOfBoundsException if location < 0 || location > {@link #getJoinableCount()}
+	 * @throws IllegalStateException if there are too many joinables for id mode, see
+	 * {@link #ID_MODE_HIGH_BITS}
 	 */
 	public boolean add(Joinable joinable, int location) {
 		if (joinable == null) return false;
 		boolean wasAdded = mHostAdapter.addJoinableInternal(joinable, location);
-		if (wasAdded && mAutoUpdate) {
-			try {//avoid "observer was already registered" exception
-				if (mJoinableToObserver.get(joinable) == null) {//if no current observer
-					mJoinableToObserver.put(joinable, new DataObserver(joinable, mHostAdapter));
-				}
-				joinable.getAdapter().registerAdapterDataObserver(mJoinableToObserver.get(joinable));
-			} catch (IllegalStateException ex) {
-				Log.d(TAG, "add: observer was already registered");
-			}
+		if (wasAdded) {
+			registerObserver(joinable);
 		}
 		return wasAdded;
 	}
@@ -136,312 +298,2581 @@ public class RvJoiner {
 	 */
 	public boolean remove(Joinable joinable) {
 		if (joinable == null) return false;
-		if (mAutoUpdate) {
-			try {//avoid "observer wasn't registered" exception
-				joinable.getAdapter().unregisterAdapterDataObserver(
-						mJoinableToObserver.get(joinable));
-				//removing from map not needed
-			} catch (IllegalStateException|IllegalArgumentException ex) {
-				Log.d(TAG, "remove: observer not registered");
-			}
-		}
+		unregisterObserver(joinable);
 		return mHostAdapter.removeJoinableInternal(joinable);
 	}
 
 	/**
-	 * @return adapter, which you can set to RecyclerView.
+	 * Adds several joinables at once. Unlike calling {@link #add(Joinable, int)} for every one,
+	 * index is rebuilt once, and joined adapter is notified about single range insertion.
+	 * @param location location of the first joinable, from [0 to {@link #getJoinableCount()}]
+	 * @param joinables joinables to add, nulls, duplicates and already added ones are skipped
+	 * @return false if nothing was added
+	 * @throws IndexOutOfBoundsException if location < 0 || location > {@link #getJoinableCount()}
+	 * @throws IllegalStateException if there are too many joinables for id mode, see
+	 * {@link #ID_MODE_HIGH_BITS}
 	 */
-	public RecyclerView.Adapter getAdapter() {
-		return mHostAdapter;
+	public boolean addAll(int location, @NonNull List<? extends Joinable> joinables) {
+		int joinableCount = getJoinableCount();
+		if (location < 0 || location > joinableCount) {
+			throw new IndexOutOfBoundsException("Invalid location " + location
+					+ ", joinable count is " + joinableCount);
+		}
+		List<Joinable> newJoinables = new ArrayList<>(joinableCount + joinables.size());
+		Map<Joinable, Boolean> added = new IdentityHashMap<>();
+		for (int i = 0; i < joinableCount; i++) {
+			if (i == location) {
+				addNew(newJoinables, joinables, added);
+			}
+			newJoinables.add(getJoinableByLocation(i));
+		}
+		if (location == joinableCount) {
+			addNew(newJoinables, joinables, added);
+		}
+		if (added.isEmpty()) return false;
+		mHostAdapter.setJoinablesInternal(newJoinables);
+		for (Joinable joinable : added.keySet()) {
+			registerObserver(joinable);
+		}
+		return true;
 	}
 
 	/**
-	 * @param joinedPosition total joined position [0 .. item_count-1)
-	 * @return object which wraps info, or null if position doesn't exist
-	 * @see PositionInfo
+	 * Adds several joinables to the bottom of joiner.
+	 * @see #addAll(int, List)
 	 */
-	public PositionInfo getPositionInfo(int joinedPosition) {
-		return mHostAdapter.getPositionInfoInternal(joinedPosition);
+	public boolean addAll(@NonNull List<? extends Joinable> joinables) {
+		return addAll(getJoinableCount(), joinables);
 	}
 
 	/**
-	 * Class to wrap together extra item info. You can access info using public final fields.
-	 * <pre>
-	 *     {@link PositionInfo#joinedPosition} - total position in joiner
-	 *     {@link PositionInfo#realPosition} - position in real hostAdapter which handles item
-	 *     {@link PositionInfo#joinable} - joinable which handles item
-	 *     {@link PositionInfo#joinedType} - total type in joiner
-	 *     {@link PositionInfo#realType} - type in real hostAdapter which handles item
-	 * </pre>
+	 * Removes several joinables at once, index is rebuilt once, and joined adapter gets a removal
+	 * for every range of adjacent removed items.
+	 * @param joinables joinables to remove, not added ones are skipped
+	 * @return false if nothing was removed
 	 */
-	public static class PositionInfo {
-
-		public final int joinedPosition;
-		public final int realPosition;
-		public final Joinable joinable;
-		public final int joinedType;
-		public final int realType;
-
-		private PositionInfo(int joinedPosition, int realPosition, Joinable joinable, int joinedType,
-							 int realType) {
-			this.joinedPosition = joinedPosition;
-			this.realPosition = realPosition;
-			this.joinable = joinable;
-			this.joinedType = joinedType;
-			this.realType = realType;
+	public boolean removeAll(@NonNull Collection<? extends Joinable> joinables) {
+		Map<Joinable, Boolean> removed = new IdentityHashMap<>();
+		for (Joinable joinable : joinables) {
+			if (getJoinableLocation(joinable) >= 0) {
+				removed.put(joinable, true);
+			}
 		}
-
+		if (removed.isEmpty()) return false;
+		List<Joinable> newJoinables = new ArrayList<>(getJoinableCount() - removed.size());
+		for (int i = 0; i < getJoinableCount(); i++) {
+			Joinable joinable = getJoinableByLocation(i);
+			if (!removed.containsKey(joinable)) {
+				newJoinables.add(joinable);
+			}
+		}
+		for (Joinable joinable : removed.keySet()) {
+			unregisterObserver(joinable);
+		}
+		mHostAdapter.setJoinablesInternal(newJoinables);
+		return true;
 	}
 
 	/**
-	 * Can be used as {@link RvJoiner} wrapper to get real position by joined position.
-	 * This class appears because this methods
-	 * <pre>
-	 * {@link RecyclerView#getChildAdapterPosition(View)},
-	 * {@link RecyclerView#getChildLayoutPosition(View)},
-	 * {@link ViewHolder#getAdapterPosition()}
-	 * {@link ViewHolder#getLayoutPosition()}
-	 * </pre>
-	 * returns JOINED position, but it's often more important know the real position (for ex.,
-	 * when react on click and want to know what data from adapter you should use)
+	 * Replaces joinable with other one at the same location.
+	 * @param oldJoinable added joinable
+	 * @param newJoinable joinable, which isn't added yet
+	 * @return false if old joinable isn't added, or new one is null or already added
 	 */
-	public static class RealPositionProvider {
-
-		private RvJoiner mRvJoiner;
-
-		/**
-		 * @param rvJoiner may be null
-		 */
-		public RealPositionProvider(RvJoiner rvJoiner) {
-			this.mRvJoiner = rvJoiner;
+	public boolean replace(Joinable oldJoinable, Joinable newJoinable) {
+		int location = getJoinableLocation(oldJoinable);
+		if (location < 0 || newJoinable == null || getJoinableLocation(newJoinable) >= 0) {
+			return false;
 		}
-
-		/**
-		 * Returns real position corresponded to this joined position.
-		 * Will return the same value if no joiner were passed to constructor
-		 */
-		public int getRealPosition(int joinedPosition) {
-			if (mRvJoiner == null) {
-				return joinedPosition;
-			} else {
-				PositionInfo positionInfo = mRvJoiner.getPositionInfo(joinedPosition);
-				return positionInfo != null ? positionInfo.realPosition : RecyclerView.NO_POSITION;
-			}
+		List<Joinable> newJoinables = new ArrayList<>(getJoinableCount());
+		for (int i = 0; i < getJoinableCount(); i++) {
+			newJoinables.add(i == location ? newJoinable : getJoinableByLocation(i));
 		}
-
+		mHostAdapter.setJoinablesInternal(newJoinables);
+		unregisterObserver(oldJoinable);
+		registerObserver(newJoinable);
+		return true;
 	}
 
-	/*
-	Actual joiner hostAdapter implementation.
-	Joined position and joined type - values in new composite hostAdapter.
-	Real position and real type - values in real sub adapters.
-	So, to integrate it we need some mapping, but we don't actually need a maps, because
-	joined types is in [0 .. total_types_count) and joined positions in [0 .. new_adapter_size).
-	So, we cat use list to accomplish this.
+	/**
+	 * Moves joinable to other location. Its view types and view holders are kept, and joined
+	 * adapter is notified about item moves (see {@link #reorder(List)}).
+	 * @param joinable added joinable
+	 * @param location new location, from [0 to {@link #getJoinableCount()})
+	 * @throws IllegalArgumentException if joinable isn't added
+	 * @throws IndexOutOfBoundsException if location < 0 || location >= {@link #getJoinableCount()}
 	 */
-	private static class HostAdapter extends RecyclerView.Adapter {
-
-		private static final String TAG = HostAdapter.class.getName();
-
-		private List<Joinable> mJoinables = new ArrayList<>();//should be unique
-		private SparseArray<PositionInfo> mItemInfoCache = new SparseArray<>();
-		private int mLastGeneratedJoinedTypeId = 0;
-
-		//update on structure modifications
-		private SparseIntArray mJoinedTypeToRealType = new SparseIntArray();
-		private SparseArray<Joinable> mJoinedTypeToJoinable = new SparseArray<>();
-		private Map<Joinable, SparseIntArray> mJoinableToRealToJoinedTypes = new HashMap<>();
-
-		//update on every data change
-		private int mCurrentItemCount = 0;
-		private List<Integer> mJoinedPosToJoinedType = new ArrayList<>();
-		private List<Integer> mJoinedPosToRealPos = new ArrayList<>();
-		private List<Joinable> mJoinedPosToJoinable = new ArrayList<>();
-		private Map<Joinable, int[]> mJoinableToJoinedPosArray = new HashMap<>();
-
-		private HostAdapter(boolean hasStableIds) {
-			setHasStableIds(hasStableIds);
-			registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
-				@Override
-				public void onChanged() {
-					postDataSetChanged();
-				}
-
-				@Override
-				public void onItemRangeChanged(int positionStart, int itemCount) {
-					onChanged();
-				}
-
-				@Override
-				public void onItemRangeInserted(int positionStart, int itemCount) {
-					onChanged();
-				}
-
-				@Override
-				public void onItemRangeRemoved(int positionStart, int itemCount) {
-					onChanged();
-				}
-
-				@Override
-				public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
-					onChanged();
-				}
-			});
-		}
-
-		@Override
-		public ViewHolder onCreateViewHolder(ViewGroup parent, int joinedType) {
-			return mJoinedTypeToJoinable.get(joinedType).getAdapter()
-					.onCreateViewHolder(parent, mJoinedTypeToRealType.get(joinedType));
-		}
-
-		@Override
-		@SuppressWarnings("unchecked")
-		public void onBindViewHolder(ViewHolder holder, int joinedPosition) {
-			mJoinedPosToJoinable.get(joinedPosition).getAdapter()
-					.onBindViewHolder(holder, mJoinedPosToRealPos.get(joinedPosition));
+	public void move(Joinable joinable, int location) {
+		int oldLocation = getJoinableLocation(joinable);
+		if (oldLocation < 0) {
+			throw new IllegalArgumentException("Joinable isn't added");
 		}
-
-		@Override
-		public long getItemId(int joinedPosition) {
-			return mJoinedPosToJoinable.get(joinedPosition).getAdapter()
-					.getItemId(mJoinedPosToRealPos.get(joinedPosition));
+		if (location < 0 || location >= getJoinableCount()) {
+			throw new IndexOutOfBoundsException("Invalid location " + location
+					+ ", joinable count is " + getJoinableCount());
 		}
-
-		@Override
-		public int getItemCount() {
-			return mCurrentItemCount;
+		if (location == oldLocation) return;
+		List<Joinable> newJoinables = new ArrayList<>(getJoinableCount());
+		for (int i = 0; i < getJoinableCount(); i++) {
+			if (i != oldLocation) {
+				newJoinables.add(getJoinableByLocation(i));
+			}
 		}
+		newJoinables.add(location, joinable);
+		mHostAdapter.setJoinablesInternal(newJoinables);
+	}
 
-		@Override
-		public int getItemViewType(int joinedPosition) {
-			return mJoinedPosToJoinedType.get(joinedPosition);
+	/**
+	 * Changes order of joinables. View types and view holders of all joinables are kept. Moved
+	 * joinables are chosen so that they have the least item count (the rest stays in place), and
+	 * joined adapter is notified about moves of their items only. Big blocks of items (more than
+	 * 32) are notified as removal and insertion, as recycler moves items one by one.
+	 * @param joinables all added joinables in new order
+	 * @throws IllegalArgumentException if joinables aren't the same as added ones
+	 */
+	public void reorder(@NonNull List<? extends Joinable> joinables) {
+		Map<Joinable, Boolean> newSet = new IdentityHashMap<>();
+		for (Joinable joinable : joinables) {
+			if (getJoinableLocation(joinable) < 0 || newSet.put(joinable, true) != null) {
+				throw new IllegalArgumentException("Joinable isn't added or is duplicated");
+			}
 		}
-
-		private int getJoinableCountInternal() {
-			return mJoinables.size();
+		if (newSet.size() != getJoinableCount()) {
+			throw new IllegalArgumentException("Not all joinables are reordered");
 		}
+		mHostAdapter.setJoinablesInternal(new ArrayList<Joinable>(joinables));
+	}
 
-		/**
-		 * @return joined position for first element of joinable,
-		 * or {@link RecyclerView#NO_POSITION} if joinable is not added
-		 */
-		private int getJoinableStartPosition(Joinable joinable) {
-			int positionStart = 0;
-			for (Joinable currentJoinable : mJoinables) {
-				if (currentJoinable == joinable) return positionStart;
-				positionStart += currentJoinable.getAdapter().getItemCount();
+	/**
+	 * Makes joiner contain exactly given joinables in given order. Joinables, which are already
+	 * added, keep their view types and view holders, and are moved if needed (as in
+	 * {@link #reorder(List)}). Others are removed and new ones are added, index is rebuilt once,
+	 * and notifications are merged as in a batch (see {@link #beginBatch()}).
+	 * @param joinables new joinables, nulls and duplicates are skipped
+	 * @throws IllegalStateException if there are too many joinables for id mode, see
+	 * {@link #ID_MODE_HIGH_BITS}
+	 */
+	public void setJoinables(@NonNull List<? extends Joinable> joinables) {
+		List<Joinable> newJoinables = new ArrayList<>(joinables.size());
+		Map<Joinable, Boolean> newSet = new IdentityHashMap<>();
+		List<Joinable> addedJoinables = new ArrayList<>();
+		for (Joinable joinable : joinables) {
+			if (joinable != null && !newSet.containsKey(joinable)) {
+				newSet.put(joinable, true);
+				newJoinables.add(joinable);
+				if (getJoinableLocation(joinable) < 0) {
+					addedJoinables.add(joinable);
+				}
 			}
-			return RecyclerView.NO_POSITION;
 		}
-
-		private boolean addJoinableInternal(@NonNull Joinable joinable, int location) {
-			if (!mJoinables.contains(joinable)) {
-				mJoinables.add(location, joinable);
-				postStructureChanged(joinable);
-				int positionStart = getJoinableStartPosition(joinable);
-				notifyItemRangeInserted(positionStart, joinable.getAdapter().getItemCount());
-				return true;
+		List<Joinable> removedJoinables = new ArrayList<>();
+		for (int i = 0; i < getJoinableCount(); i++) {
+			Joinable joinable = getJoinableByLocation(i);
+			if (!newSet.containsKey(joinable)) {
+				removedJoinables.add(joinable);
 			}
-			return false;
 		}
+		mHostAdapter.setJoinablesInternal(newJoinables);
+		for (Joinable joinable : removedJoinables) {
+			unregisterObserver(joinable);
+		}
+		for (Joinable joinable : addedJoinables) {
+			registerObserver(joinable);
+		}
+	}
 
-		private boolean removeJoinableInternal(@NonNull Joinable joinable) {
-			//save this before removing
-			int positionStart = getJoinableStartPosition(joinable);
-			if (positionStart != RecyclerView.NO_POSITION) {//if exist
-				mJoinables.remove(joinable);
-				postStructureChanged(joinable);
-				notifyItemRangeRemoved(positionStart, joinable.getAdapter().getItemCount());
-				return true;
+	//adds joinables, which aren't null, added to joiner or to target already
+	private void addNew(List<Joinable> target, List<? extends Joinable> joinables,
+						Map<Joinable, Boolean> added) {
+		for (Joinable joinable : joinables) {
+			if (joinable != null && !added.containsKey(joinable)
+					&& getJoinableLocation(joinable) < 0) {
+				added.put(joinable, true);
+				target.add(joinable);
 			}
-			return false;
 		}
+	}
 
-		/**
-		 * Should be called after any structure changing (changes in {@link #mJoinables}).
-		 * Structure modifications changes data, so call notify method after using this method, or
-		 * call {@link #postDataSetChanged()}
-		 */
-		private void postStructureChanged(Joinable diffJoinable) {
-			if (mJoinables.contains(diffJoinable)) {//if was added
-				SparseIntArray realToJoinedTypes = new SparseIntArray(diffJoinable.getTypeCount());
-				for (int i = 0; i < diffJoinable.getTypeCount(); i++) {
-					int newTypeId = mLastGeneratedJoinedTypeId++;
-					mJoinedTypeToJoinable.put(newTypeId, diffJoinable);
-					mJoinedTypeToRealType.put(newTypeId, diffJoinable.getTypeByIndex(i));
-					realToJoinedTypes.put(diffJoinable.getTypeByIndex(i), newTypeId);
-				}
-				mJoinableToRealToJoinedTypes.put(diffJoinable, realToJoinedTypes);
+	private void registerObserver(Joinable joinable) {
+		if (!mAutoUpdate) return;
+		discardQueuedUpdates(joinable);
+		try {//avoid "observer was already registered" exception
+			if (mJoinableToObserver.get(joinable) == null) {//if no current observer
+				mJoinableToObserver.put(joinable, new DataObserver(joinable, mHostAdapter));
 			}
+			joinable.getAdapter().registerAdapterDataObserver(mJoinableToObserver.get(joinable));
+		} catch (IllegalStateException ex) {
+			Log.d(TAG, "add: observer was already registered");
 		}
+	}
 
-		/**
-		 * Should be called after any {@link #mHostAdapter} data set changing.
-		 */
-		private void postDataSetChanged() {
-			mCurrentItemCount = 0;
-			mJoinedPosToJoinedType.clear();
-			mJoinedPosToRealPos.clear();
-			mJoinedPosToJoinable.clear();
-			mJoinableToJoinedPosArray.clear();
-			for (Joinable joinable : mJoinables) {
-				int[] joinedPosArray = new int[joinable.getAdapter().getItemCount()];
-				for (int i = 0; i < joinable.getAdapter().getItemCount(); i++) {
-					joinedPosArray[i] = mCurrentItemCount;
-					mCurrentItemCount++;
-					int itemRealType = joinable.getAdapter().getItemViewType(i);
-					int itemJoinedType = mJoinableToRealToJoinedTypes.get(joinable).get(itemRealType);
-					mJoinedPosToJoinedType.add(itemJoinedType);
-					mJoinedPosToRealPos.add(i);
-					mJoinedPosToJoinable.add(joinable);
-				}
-				mJoinableToJoinedPosArray.put(joinable, joinedPosArray);
-			}
-			mItemInfoCache.clear();
-		}
-
-		//return null, if position doesn't exist.
-		private PositionInfo getPositionInfoInternal(int joinedPosition) {
-			PositionInfo positionInfo = mItemInfoCache.get(joinedPosition);
-			if (positionInfo == null) {
-				try {
-					positionInfo = new PositionInfo(
-							joinedPosition,
-							mJoinedPosToRealPos.get(joinedPosition),
-							mJoinedPosToJoinable.get(joinedPosition),
-							mJoinedPosToJoinedType.get(joinedPosition),
-							mJoinedTypeToRealType.get(mJoinedPosToJoinedType.get(joinedPosition))
-					);
-					mItemInfoCache.put(joinedPosition, positionInfo);
-				} catch (IndexOutOfBoundsException ex) {
-					Log.e(TAG, "getPositionInfoInternal: position doesn't exist: " + joinedPosition, ex);
-				}
-			}
-			return positionInfo;
+	private void unregisterObserver(Joinable joinable) {
+		if (!mAutoUpdate) return;
+		try {//avoid "observer wasn't registered" exception
+			joinable.getAdapter().unregisterAdapterDataObserver(
+					mJoinableToObserver.remove(joinable));
+		} catch (IllegalStateException|IllegalArgumentException ex) {
+			Log.d(TAG, "remove: observer not registered");
 		}
+	}
 
-		/**
-		 * @return position, or {@link RecyclerView#NO_POSITION} if position doesn't exist
-		 */
-		private int getJoinedPosition(int realPosition, Joinable joinable) {
-			int[] joinedPosArray = mJoinableToJoinedPosArray.get(joinable);
-			if (joinedPosArray != null && realPosition >= 0 && realPosition < joinedPosArray.length) {
-				return mJoinableToJoinedPosArray.get(joinable)[realPosition];
-			} else {
-				return RecyclerView.NO_POSITION;
-			}
+	/**
+	 * Hides (collapses) or shows (expands) items of joinable, notifying about single range
+	 * removal or insertion. Unlike {@link #remove(Joinable)}, joinable keeps its place, types and
+	 * pooled view holders, and stays registered. Changes in collapsed joinable aren't passed to
+	 * joined adapter, item count is read again on expand.
+	 * @param joinable joinable, already added to joiner
+	 * @param collapsed true to collapse, false to expand
+	 * @throws IllegalArgumentException if joinable isn't added
+	 */
+	public void setCollapsed(Joinable joinable, boolean collapsed) {
+		if (!collapsed) {
+			discardQueuedUpdates(joinable);
 		}
+		mHostAdapter.setCollapsedInternal(joinable, collapsed);
+	}
 
+	/**
+	 * @return true if joinable is collapsed, false if it's expanded or isn't added
+	 * @see #setCollapsed(Joinable, boolean)
+	 */
+	public boolean isCollapsed(Joinable joinable) {
+		return mHostAdapter.isCollapsedInternal(joinable);
 	}
 
 	/**
-	 * An observer to set in joinable adapters (needed for auto update implementation)
+	 * Starts a batch: until {@link #endBatch()} joiner doesn't notify joined adapter about changes
+	 * in joinables or about {@link #add(Joinable, int)} and {@link #remove(Joinable)} calls, but
+	 * collects them and then sends the smallest set of merged range notifications at once.
+	 * Joiner's index is updated immediately, so {@link #getPositionInfo(int)} reflects all changes.
+	 * Batches can be nested, notifications are sent when the outermost batch ends. NOTE: end batch
+	 * before RecyclerView gets a chance to layout (in the same main thread message), or use
+	 * {@link #runBatch(Runnable)} to be sure.
 	 */
-	private static class DataObserver extends RecyclerView.AdapterDataObserver {
+	public void beginBatch() {
+		mHostAdapter.beginBatchInternal();
+	}
 
-		private Joinable mJoinable;
-		private HostAdapter mHostAdapter;
+	/**
+	 * Ends batch, started with {@link #beginBatch()}.
+	 * @throws IllegalStateException if there is no started batch
+	 */
+	public void endBatch() {
+		mHostAdapter.endBatchInternal();
+	}
+
+	/**
+	 * Runs all updates in a batch.
+	 * @see #beginBatch()
+	 */
+	public void runBatch(Runnable updates) {
+		beginBatch();
+		try {
+			updates.run();
+		} finally {
+			endBatch();
+		}
+	}
+
+	/**
+	 * Replaces joinable data with new snapshot, notifying only about changed items. Snapshot is
+	 * compared with current data by item ids and contents on background executor, so refresh of
+	 * big list doesn't freeze UI, and snapshots of several joinables are compared in parallel.
+	 * Data is replaced using {@link SnapshotCallback#setData(List)} and changes are sent on main
+	 * thread later. If snapshot for the same joinable is submitted again before that, only the
+	 * last one is applied. Don't change joinable data other ways, while snapshot is pending.
+	 * If comparing throws (for ex. in callback methods), snapshot isn't applied, and exception
+	 * is rethrown on main thread. Should be called from main thread.
+	 * @param joinable joinable, which data should be replaced (also can be not added yet)
+	 * @param snapshot new data, shouldn't be modified after submit
+	 * @param callback callback to access joinable data
+	 * @see #setBackgroundExecutor(Executor)
+	 */
+	public <T> void submitSnapshot(@NonNull Joinable joinable, @NonNull List<T> snapshot,
+								   @NonNull SnapshotCallback<T> callback) {
+		if (mSnapshotDiffer == null) {
+			mSnapshotDiffer = new SnapshotDiffer(this);
+		}
+		mSnapshotDiffer.submit(joinable, snapshot, callback);
+	}
+
+	/**
+	 * Sets executor for joiner background work, such as snapshots comparing. By default, joiners
+	 * use shared pool of several background threads.
+	 * @param executor executor, or null to use default one
+	 */
+	public void setBackgroundExecutor(@Nullable Executor executor) {
+		mBackgroundExecutor = executor;
+	}
+
+	/**
+	 * Sets how joined item ids are made from ids of joinable items, when stable ids are used.
+	 * Every joined joinable has compact namespace (number), which is kept while joinable is
+	 * joined, and can be mixed into its ids, so joinables with overlapping ids (for ex. database
+	 * row ids) can be joined safely. {@link RecyclerView#NO_ID} is always passed as is. If mode
+	 * is changed after items were added, joined adapter is notified about data set change.
+	 * @param idMode one of ID_MODE_ constants, {@link #ID_MODE_PASS_THROUGH} by default
+	 * @throws IllegalStateException if there are too many joinables for the mode
+	 */
+	public void setIdMode(int idMode) {
+		if (idMode != ID_MODE_PASS_THROUGH && idMode != ID_MODE_HIGH_BITS
+				&& idMode != ID_MODE_HASH) {
+			throw new IllegalArgumentException("Unknown id mode " + idMode);
+		}
+		if (idMode == ID_MODE_HIGH_BITS) {
+			mHostAdapter.checkIdNamespaceLimit(getJoinableCount(), idMode);
+		}
+		mHostAdapter.setIdModeInternal(idMode);
+	}
+
+	/**
+	 * Filters items of all joinables. Filter is checked on background executor, in parallel for
+	 * different joinables, and results are applied section by section (joinable by joinable) on
+	 * main thread as ranged notifications, so the first sections are shown before the whole
+	 * list is checked. Until its result is applied, joinable shows items of previous filter, and
+	 * joinable, added while filter is set, shows nothing. New filter cancels previous one, its
+	 * results are never applied. Data changes of joinable, which come before its result, make
+	 * joiner check it again. Filtered joinable shows only accepted items: real positions of
+	 * {@link #getPositionInfo(int)} and {@link #getJoinedPosition(Joinable, int)} skip hidden
+	 * items, and {@link #getJoinableItemCount(Joinable)} counts only shown ones. Should be called
+	 * from main thread.
+	 * @param filter filter, or null to show all items
+	 * @param hideEmptySections if true, {@link JoinableLayout} (section header) is hidden, when
+	 *                          all joinables after it (up to the next layout) show no items.
+	 *                          Collapsed joinables are never considered empty.
+	 * @see #setBackgroundExecutor(Executor)
+	 */
+	public void setFilter(@Nullable ItemFilter filter, boolean hideEmptySections) {
+		if (filter != null && mHostAdapter.mFilterRunner == null) {
+			mHostAdapter.mFilterRunner = new FilterRunner(this);
+		}
+		mHostAdapter.setFilterInternal(filter, hideEmptySections);
+	}
+
+	/**
+	 * The same as {@link #setFilter(ItemFilter, boolean)}, section headers are always shown
+	 */
+	public void setFilter(@Nullable ItemFilter filter) {
+		setFilter(filter, false);
+	}
+
+	/**
+	 * @return current filter, or null if items aren't filtered
+	 */
+	@Nullable
+	public ItemFilter getFilter() {
+		return mHostAdapter.mFilter;
+	}
+
+	/**
+	 * Sets how notifications of joined adapters are applied. In {@link #DISPATCH_MODE_FRAME}
+	 * joined adapters can call notify methods from any thread: notifications from background
+	 * threads are queued, merged and applied on main thread before the next frame (aligned to
+	 * Choreographer on API 16+), so under bursty updates index is rebuilt at most once per frame.
+	 * Until then joined adapter still reports old positions, so adapter, which notifies from
+	 * background, should keep data, which RecyclerView reads on main thread (item count, types,
+	 * bound items), unchanged until the notification is applied (for ex. change it on main thread
+	 * too, right before posting notification there). Notifications from main thread (including
+	 * diffs of {@link #submitSnapshot(Joinable, List, SnapshotCallback)}) are applied
+	 * immediately, because data is already changed then. Switching back to
+	 * {@link #DISPATCH_MODE_IMMEDIATE} applies queued notifications at once. Works only with auto
+	 * update. Should be called from main thread.
+	 * @param dispatchMode one of DISPATCH_MODE_ constants, {@link #DISPATCH_MODE_IMMEDIATE} by
+	 *                     default
+	 */
+	public void setDispatchMode(int dispatchMode) {
+		if (dispatchMode != DISPATCH_MODE_IMMEDIATE && dispatchMode != DISPATCH_MODE_FRAME) {
+			throw new IllegalArgumentException("Unknown dispatch mode " + dispatchMode);
+		}
+		FrameDispatcher dispatcher = mHostAdapter.mFrameDispatcher;
+		if (dispatchMode == DISPATCH_MODE_FRAME) {
+			if (dispatcher == null) {
+				mHostAdapter.mFrameDispatcher = new FrameDispatcher(this);
+			}
+		} else if (dispatcher != null) {
+			mHostAdapter.mFrameDispatcher = null;
+			dispatcher.flush();
+		}
+	}
+
+	/**
+	 * Sets listener of index rebuilds, translated notifications and fallbacks. Without listener
+	 * nothing is measured, so it costs nothing, and with {@link JoinerMetrics} it's cheap enough
+	 * for release builds.
+	 * @param listener listener, or null to stop measuring
+	 */
+	public void setMetricsListener(@Nullable MetricsListener listener) {
+		mHostAdapter.mMetricsListener = listener;
+	}
+
+	Executor getBackgroundExecutor() {
+		return mBackgroundExecutor != null
+				? mBackgroundExecutor : JoinerExecutors.getBackgroundExecutor();
+	}
+
+	//applies notifications, queued in frame dispatch mode, in a single batch
+	void applyQueuedUpdates(List<FrameDispatcher.Update> updates) {
+		beginBatch();
+		try {
+			for (FrameDispatcher.Update update : updates) {
+				mHostAdapter.applyJoinableUpdate(update.joinable, update.type,
+						update.positionStart, update.itemCount, update.toPosition, update.payload);
+			}
+		} finally {
+			endBatch();
+		}
+	}
+
+	//applies result of filter query (mask, or error if filter has thrown), main thread only
+	void applyFilterResult(Joinable joinable, int version, VisibleMask mask,
+						   RuntimeException error) {
+		mHostAdapter.applyFilterResultInternal(joinable, version, mask, error);
+	}
+
+	//drops queued notifications of joinable, when its item count is read again
+	private void discardQueuedUpdates(Joinable joinable) {
+		FrameDispatcher dispatcher = mHostAdapter.mFrameDispatcher;
+		if (dispatcher != null) {
+			dispatcher.discard(joinable);
+		}
+	}
+
+	//notifies about changes in joinable data, in a single batch
+	void dispatchDiffResult(Joinable joinable, DiffUtil.DiffResult result) {
+		beginBatch();
+		try {
+			if (mAutoUpdate) {//our observer is registered in adapter
+				result.dispatchUpdatesTo(joinable.getAdapter());
+			} else {
+				final DataObserver observer = new DataObserver(joinable, mHostAdapter);
+				result.dispatchUpdatesTo(new ListUpdateCallback() {
+					@Override
+					public void onInserted(int position, int count) {
+						observer.onItemRangeInserted(position, count);
+					}
+
+					@Override
+					public void onRemoved(int position, int count) {
+						observer.onItemRangeRemoved(position, count);
+					}
+
+					@Override
+					public void onMoved(int fromPosition, int toPosition) {
+						observer.onItemRangeMoved(fromPosition, toPosition, 1);
+					}
+
+					@Override
+					public void onChanged(int position, int count, Object payload) {
+						observer.onItemRangeChanged(position, count, payload);
+					}
+				});
+			}
+		} finally {
+			endBatch();
+		}
+	}
+
+	/**
+	 * @return adapter, which you can set to RecyclerView.
+	 */
+	public RecyclerView.Adapter getAdapter() {
+		return mHostAdapter;
+	}
+
+	/**
+	 * Returns joinable, which represents this joiner, so joiner can be added to other joiner as
+	 * a single block (for ex., header, adapter and footer). Types of nested joiner are registered
+	 * in parent automatically (also when joinables are added to nested joiner later), and its
+	 * changes are passed to parent as range notifications. Pool settings of nested joiner
+	 * ({@link #setMaxRecycledViews(Joinable, int, int)} and
+	 * {@link #prewarmViewHolders(Joinable, int, int)}) are applied to parent, so don't set nested
+	 * joiner's adapter to recycler view directly.
+	 * @return the same joinable for every call
+	 */
+	public Joinable asJoinable() {
+		if (mNestedJoinable == null) {
+			mNestedJoinable = new NestedJoinable(mHostAdapter);
+		}
+		return mNestedJoinable;
+	}
+
+	/**
+	 * Sets max count of pooled view holders for joinable type (recycler pools 5 by default). Use
+	 * it for heavy types, which are expensive to inflate. Applies to all recycler views, which
+	 * use joiner's adapter. NOTE: shared types (see {@link SharedTypes}) have common pool size.
+	 * @param joinable joinable, already added to joiner
+	 * @param realType type of joinable adapter (one of {@link Joinable#getTypeByIndex(int)})
+	 * @param max max pooled view holders count
+	 * @throws IllegalArgumentException if joinable isn't added or hasn't declared real type
+	 */
+	public void setMaxRecycledViews(Joinable joinable, int realType, int max) {
+		mHostAdapter.setMaxRecycledViewsInternal(joinable, realType, max);
+	}
+
+	/**
+	 * The same as {@link #setMaxRecycledViews(Joinable, int, int)} for all types of joinable
+	 */
+	public void setMaxRecycledViews(Joinable joinable, int max) {
+		for (int i = 0; i < joinable.getTypeCount(); i++) {
+			setMaxRecycledViews(joinable, joinable.getTypeByIndex(i), max);
+		}
+	}
+
+	/**
+	 * Creates view holders of joinable type in advance and puts them to recycler pool, so there
+	 * is no inflation when items of this type appear first time. View holders are created one by
+	 * one, when main thread is idle, after adapter is set to recycler view. Pool size is increased
+	 * to count if needed. Should be called from main thread.
+	 * @param joinable joinable, already added to joiner
+	 * @param realType type of joinable adapter (one of {@link Joinable#getTypeByIndex(int)})
+	 * @param count count of view holders to create
+	 * @throws IllegalArgumentException if joinable isn't added or hasn't declared real type
+	 */
+	public void prewarmViewHolders(Joinable joinable, int realType, int count) {
+		mHostAdapter.prewarmInternal(joinable, realType, count);
+	}
+
+	/**
+	 * Returns span size lookup for {@link GridLayoutManager}, which uses span sizes set with
+	 * {@link #setSpanSize(Joinable, int)} and {@link #setSpanSize(Joinable, int, int)} (1 for
+	 * all other items). Span index cache is enabled and invalidated by joiner, when structure or
+	 * span sizes change. The same lookup is returned for every call.
+	 */
+	public GridLayoutManager.SpanSizeLookup getSpanSizeLookup() {
+		return mHostAdapter.getSpanSizeLookupInternal();
+	}
+
+	/**
+	 * Sets span size for all items of joinable in grid (see {@link #getSpanSizeLookup()}).
+	 * Span size of real type (if set) has priority.
+	 * @param joinable joinable, already added to joiner
+	 * @param spanSize span size, or 0 to reset to default
+	 * @throws IllegalArgumentException if joinable isn't added
+	 */
+	public void setSpanSize(Joinable joinable, int spanSize) {
+		mHostAdapter.setSpanSizeInternal(joinable, spanSize);
+	}
+
+	/**
+	 * Sets span size for items of joinable type in grid (see {@link #getSpanSizeLookup()}).
+	 * NOTE: shared types (see {@link SharedTypes}) have common span size.
+	 * @param joinable joinable, already added to joiner
+	 * @param realType type of joinable adapter (one of {@link Joinable#getTypeByIndex(int)})
+	 * @param spanSize span size, or 0 to reset to default
+	 * @throws IllegalArgumentException if joinable isn't added or hasn't declared real type
+	 */
+	public void setSpanSize(Joinable joinable, int realType, int spanSize) {
+		mHostAdapter.setSpanSizeInternal(joinable, realType, spanSize);
+	}
+
+	/**
+	 * @param joinedPosition total joined position [0 .. item_count-1)
+	 * @return object which wraps info, or null if position doesn't exist
+	 * @see PositionInfo
+	 * @see #getPositionInfo(int, PositionInfo)
+	 */
+	public PositionInfo getPositionInfo(int joinedPosition) {
+		return mHostAdapter.getPositionInfoInternal(joinedPosition, null);
+	}
+
+	/**
+	 * The same as {@link #getPositionInfo(int)}, but fills passed object instead of creating new
+	 * one. Use it when you need full info often (for ex., in item decorations).
+	 * @param joinedPosition total joined position [0 .. item_count-1)
+	 * @param reuse object to fill, if null new object is created
+	 * @return filled object, or null if position doesn't exist (reuse object isn't changed then)
+	 */
+	public PositionInfo getPositionInfo(int joinedPosition, PositionInfo reuse) {
+		return mHostAdapter.getPositionInfoInternal(joinedPosition, reuse);
+	}
+
+	/**
+	 * @param joinedPosition total joined position
+	 * @return position in joinable which handles item,
+	 * or {@link RecyclerView#NO_POSITION} if position doesn't exist
+	 */
+	public int getRealPosition(int joinedPosition) {
+		return mHostAdapter.tryResolvePosition(joinedPosition)
+				? mHostAdapter.mResolvedRealPosition : RecyclerView.NO_POSITION;
+	}
+
+	/**
+	 * @param joinedPosition total joined position
+	 * @return type in joinable which handles item,
+	 * or {@link RecyclerView#INVALID_TYPE} if position doesn't exist
+	 */
+	public int getRealType(int joinedPosition) {
+		return mHostAdapter.tryResolvePosition(joinedPosition)
+				? mHostAdapter.mResolvedSegment.getRealType(mHostAdapter.mResolvedRealPosition)
+				: RecyclerView.INVALID_TYPE;
+	}
+
+	/**
+	 * @param joinedPosition total joined position
+	 * @return joinable which handles item, or null if position doesn't exist
+	 */
+	public Joinable getJoinable(int joinedPosition) {
+		return mHostAdapter.tryResolvePosition(joinedPosition)
+				? mHostAdapter.mResolvedSegment.joinable : null;
+	}
+
+	/**
+	 * @param joinable joinable, which handles item
+	 * @param realPosition position in joinable
+	 * @return total joined position,
+	 * or {@link RecyclerView#NO_POSITION} if joinable isn't added or position doesn't exist
+	 */
+	public int getJoinedPosition(Joinable joinable, int realPosition) {
+		return mHostAdapter.getJoinedPositionInternal(joinable, realPosition);
+	}
+
+	/**
+	 * Returns immutable snapshot of joiner's index, which can be used to map positions on
+	 * background threads. Snapshot is published by main thread after every applied change (after
+	 * batch end for batches), so it matches positions, which joined adapter has been notified
+	 * about. Publishing starts with the first call of this method, so joiners, which nobody
+	 * reads snapshots of, don't pay for them. If the first call is made off main thread, it
+	 * returns snapshot of empty joiner, and actual one is published by main thread a bit later.
+	 * Can be called from any thread, never blocks.
+	 */
+	public IndexSnapshot getIndexSnapshot() {
+		return mHostAdapter.getSnapshotInternal();
+	}
+
+	/*
+	Section index. Joinables are sections of joined list, lookups use joiner's index, so they are
+	O(log(joinable_count)) and don't ask joinables for item counts.
+	 */
+
+	/**
+	 * @return joined position of the first item of joinable (position, where joinable would be,
+	 * if it has no items), or {@link RecyclerView#NO_POSITION} if joinable isn't added
+	 */
+	public int getJoinableStart(Joinable joinable) {
+		return mHostAdapter.getJoinableStartPosition(joinable);
+	}
+
+	/**
+	 * @return item count of joinable known by joiner, or 0 if joinable isn't added
+	 */
+	public int getJoinableItemCount(Joinable joinable) {
+		return mHostAdapter.getJoinableItemCountInternal(joinable);
+	}
+
+	/**
+	 * @param location location from [0 to {@link #getJoinableCount()})
+	 * @return joinable at location
+	 * @throws IndexOutOfBoundsException if location doesn't exist
+	 * @see #getJoinable(int) to get joinable by joined position
+	 */
+	public Joinable getJoinableByLocation(int location) {
+		return mHostAdapter.getJoinableByLocationInternal(location);
+	}
+
+	/**
+	 * @return location of joinable, or -1 if joinable isn't added
+	 * @see #getJoinable(int) to get joinable by joined position
+	 */
+	public int getJoinableLocation(Joinable joinable) {
+		return mHostAdapter.getJoinableLocationInternal(joinable);
+	}
+
+	/**
+	 * Scrolls all recycler views, which use joiner's adapter, to item of joinable. Item is placed
+	 * at the start of list, if layout manager is {@link LinearLayoutManager} (or its subclass).
+	 * @param joinable joinable, already added to joiner
+	 * @param realPosition position in joinable
+	 * @return false if item doesn't exist
+	 */
+	public boolean scrollToJoinable(Joinable joinable, int realPosition) {
+		int joinedPosition = getJoinedPosition(joinable, realPosition);
+		if (joinedPosition == RecyclerView.NO_POSITION) return false;
+		for (RecyclerView recyclerView : mHostAdapter.getRecyclerViews()) {
+			RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+			if (layoutManager instanceof LinearLayoutManager) {
+				((LinearLayoutManager) layoutManager).scrollToPositionWithOffset(joinedPosition, 0);
+			} else {
+				recyclerView.scrollToPosition(joinedPosition);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Class to wrap together extra item info. You can access info using public fields.
+	 * Object can be reused with {@link RvJoiner#getPositionInfo(int, PositionInfo)}.
+	 * <pre>
+	 *     {@link PositionInfo#joinedPosition} - total position in joiner
+	 *     {@link PositionInfo#realPosition} - position in real hostAdapter which handles item
+	 *     {@link PositionInfo#joinable} - joinable which handles item
+	 *     {@link PositionInfo#joinedType} - total type in joiner
+	 *     {@link PositionInfo#realType} - type in real hostAdapter which handles item
+	 * </pre>
+	 */
+	public static class PositionInfo {
+
+		public int joinedPosition = RecyclerView.NO_POSITION;
+		public int realPosition = RecyclerView.NO_POSITION;
+		public Joinable joinable;
+		public int joinedType = RecyclerView.INVALID_TYPE;
+		public int realType = RecyclerView.INVALID_TYPE;
+
+		public PositionInfo() {}
+
+		private void set(int joinedPosition, int realPosition, Joinable joinable, int joinedType,
+						 int realType) {
+			this.joinedPosition = joinedPosition;
+			this.realPosition = realPosition;
+			this.joinable = joinable;
+			this.joinedType = joinedType;
+			this.realType = realType;
+		}
+
+	}
+
+	/**
+	 * Can be used as {@link RvJoiner} wrapper to get real position by joined position.
+	 * This class appears because this methods
+	 * <pre>
+	 * {@link RecyclerView#getChildAdapterPosition(View)},
+	 * {@link RecyclerView#getChildLayoutPosition(View)},
+	 * {@link ViewHolder#getAdapterPosition()}
+	 * {@link ViewHolder#getLayoutPosition()}
+	 * </pre>
+	 * returns JOINED position, but it's often more important know the real position (for ex.,
+	 * when react on click and want to know what data from adapter you should use)
+	 */
+	public static class RealPositionProvider {
+
+		private RvJoiner mRvJoiner;
+
+		/**
+		 * @param rvJoiner may be null
+		 */
+		public RealPositionProvider(RvJoiner rvJoiner) {
+			this.mRvJoiner = rvJoiner;
+		}
+
+		/**
+		 * Returns real position corresponded to this joined position.
+		 * Will return the same value if no joiner were passed to constructor
+		 */
+		public int getRealPosition(int joinedPosition) {
+			if (mRvJoiner == null) {
+				return joinedPosition;
+			} else {
+				return mRvJoiner.getRealPosition(joinedPosition);
+			}
+		}
+
+	}
+
+	/*
+	Actual joiner hostAdapter implementation.
+	Joined position and joined type - values in new composite hostAdapter.
+	Real position and real type - values in real sub adapters.
+	Joined types is in [0 .. total_types_count), so we can use sparse arrays to map them.
+	For positions we don't store anything per item: every joinable is a segment of joined list, and
+	we keep only segment item counts in SegmentIndex. Joined position resolves to segment and real
+	position by O(log J) search, and a ranged update changes only one segment count.
+	 */
+	private static class HostAdapter extends RecyclerView.Adapter {
+
+		private static final String TAG = HostAdapter.class.getName();
+		//more single moves for one range move is too expensive for recycler, remove and insert
+		private static final int MAX_SINGLE_MOVES = 32;
+		//the same as RecyclerView.RecycledViewPool.DEFAULT_MAX_SCRAP
+		private static final int DEFAULT_MAX_RECYCLED_VIEWS = 5;
+		private static final int DEFAULT_SPAN_SIZE = 1;
+		//segment object, its map entry and list slot
+		private static final int SEGMENT_BYTES = 96;
+		//array slots, start and location map entry
+		private static final int SNAPSHOT_BYTES_PER_JOINABLE = 48;
+
+		private List<Segment> mSegments = new ArrayList<>();//segment index == joinable location
+		private Map<Joinable, Segment> mJoinableToSegment = new IdentityHashMap<>();
+		private SegmentIndex mIndex = new SegmentIndex();
+		private int mLastGeneratedJoinedTypeId = 0;
+
+		private int mIdMode = ID_MODE_PASS_THROUGH;
+		private volatile FrameDispatcher mFrameDispatcher;//only in frame dispatch mode
+		private int mLastIdNamespace = 0;
+		private SparseBooleanArray mFreeIdNamespaces = new SparseBooleanArray();//of removed ones
+
+		//segments have visible masks only while filter is set
+		private ItemFilter mFilter;
+		private boolean mHideEmptySections = false;
+		private FilterRunner mFilterRunner;//created on demand
+		private int mLastFilterVersion = 0;//unique, so results for removed segments never match
+
+		//update on structure modifications
+		private SparseIntArray mJoinedTypeToRealType = new SparseIntArray();
+		private SparseArray<Joinable> mJoinedTypeToJoinable = new SparseArray<>();
+		//types of removed joinables, reused to keep type ids dense
+		private SparseBooleanArray mFreeJoinedTypes = new SparseBooleanArray();
+		//shared types, view holders are created by first owner (mJoinedTypeToJoinable)
+		private Map<Object, Integer> mTypeKeyToJoinedType = new HashMap<>();
+		private SparseArray<Object> mJoinedTypeToKey = new SparseArray<>();
+		private SparseArray<List<Joinable>> mJoinedTypeToOwners = new SparseArray<>();
+
+		//to purge view holders of released types from pools
+		private List<WeakReference<RecyclerView>> mRecyclerViews = new ArrayList<>();
+		//bound holders, which aren't recycled yet (attached, cached or animating out)
+		private SparseIntArray mJoinedTypeToHolderCount = new SparseIntArray();
+		private SparseIntArray mIdNamespaceToHolderCount = new SparseIntArray();
+
+		private SparseIntArray mJoinedTypeToMaxRecycledViews = new SparseIntArray();
+		private SparseIntArray mJoinedTypeToPrewarmCount = new SparseIntArray();//rest to create
+		private Prewarmer mPrewarmer = new Prewarmer();
+		private boolean mPrewarmScheduled = false;
+
+		private SparseIntArray mJoinedTypeToSpanSize = new SparseIntArray();
+
+		//joiners, which this joiner is nested in (see RvJoiner.asJoinable)
+		private List<HostAdapter> mParents = new ArrayList<>();
+		private NestedJoinable mNestedJoinable;
+		private JoinedSpanSizeLookup mSpanSizeLookup;//created on demand
+
+		//last resolved position, because recycler asks type, id and binds the same position in a row
+		private int mResolvedPosition = RecyclerView.NO_POSITION;
+		private Segment mResolvedSegment;
+		private int mResolvedRealPosition;
+
+		//published index, structure arrays are copied only if structure or types were changed
+		private volatile IndexSnapshot mSnapshot = new IndexSnapshot(new Joinable[0],
+				new SparseIntArray[0], new IdentityHashMap<Joinable, Integer>(), new int[1], null);
+		private boolean mSnapshotCountsChanged = false;
+		private boolean mSnapshotStructureChanged = false;
+		private volatile boolean mSnapshotRequested = false;//nothing is published until requested
+
+		//true while we notify about changes, which are already applied to index
+		private boolean mDispatching = false;
+		private int mBatchDepth = 0;
+		private UpdateBuffer mUpdateBuffer = new UpdateBuffer();
+
+		//nothing is measured if it's null
+		private MetricsListener mMetricsListener;
+
+		private HostAdapter(boolean hasStableIds) {
+			setHasStableIds(hasStableIds);
+			//notify methods can be called on host adapter manually (if auto update is off)
+			registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+				@Override
+				public void onChanged() {
+					if (!mDispatching) {
+						postDataSetChanged();
+					}
+				}
+
+				@Override
+				public void onItemRangeChanged(int positionStart, int itemCount) {
+					onChanged();
+				}
+
+				@Override
+				public void onItemRangeInserted(int positionStart, int itemCount) {
+					onChanged();
+				}
+
+				@Override
+				public void onItemRangeRemoved(int positionStart, int itemCount) {
+					onChanged();
+				}
+
+				@Override
+				public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+					onChanged();
+				}
+			});
+		}
+
+		@Override
+		public ViewHolder onCreateViewHolder(ViewGroup parent, int joinedType) {
+			return mJoinedTypeToJoinable.get(joinedType).getAdapter()
+					.onCreateViewHolder(parent, mJoinedTypeToRealType.get(joinedType));
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void onBindViewHolder(ViewHolder holder, int joinedPosition) {
+			resolvePosition(joinedPosition);
+			onHolderBound(holder, mResolvedSegment);
+			mResolvedSegment.joinable.getAdapter().onBindViewHolder(holder, mResolvedRealPosition);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void onBindViewHolder(ViewHolder holder, int joinedPosition, List payloads) {
+			resolvePosition(joinedPosition);
+			onHolderBound(holder, mResolvedSegment);
+			mResolvedSegment.joinable.getAdapter().onBindViewHolder(holder, mResolvedRealPosition,
+					UpdateBuffer.unwrapPayloads(payloads));
+		}
+
+		@Override
+		public long getItemId(int joinedPosition) {
+			resolvePosition(joinedPosition);
+			long id = mResolvedSegment.joinable.getAdapter().getItemId(mResolvedRealPosition);
+			if (mIdMode == ID_MODE_PASS_THROUGH || id == RecyclerView.NO_ID) return id;
+			//namespace can be out of high bits, while free ones are held by removed joinables
+			if (mIdMode == ID_MODE_HASH
+					|| mResolvedSegment.idNamespace > ItemIds.MAX_HIGH_BITS_NAMESPACE) {
+				return ItemIds.mixHash(mResolvedSegment.idSalt, id);
+			}
+			return ItemIds.mixHighBits(mResolvedSegment.idNamespace, id);
+		}
+
+		@Override
+		public int getItemCount() {
+			return mIndex.getTotalCount();
+		}
+
+		@Override
+		public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+			mRecyclerViews.add(new WeakReference<>(recyclerView));
+			for (Segment segment : mSegments) {
+				segment.joinable.getAdapter().onAttachedToRecyclerView(recyclerView);
+			}
+			if (isNested()) return;//pool is set up by parent
+			for (int i = 0; i < mJoinedTypeToMaxRecycledViews.size(); i++) {
+				recyclerView.getRecycledViewPool().setMaxRecycledViews(
+						mJoinedTypeToMaxRecycledViews.keyAt(i),
+						mJoinedTypeToMaxRecycledViews.valueAt(i));
+			}
+			schedulePrewarm();
+		}
+
+		@Override
+		public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+			for (int i = mRecyclerViews.size() - 1; i >= 0; i--) {
+				RecyclerView attached = mRecyclerViews.get(i).get();
+				if (attached == null || attached == recyclerView) {
+					mRecyclerViews.remove(i);
+				}
+			}
+			for (Segment segment : mSegments) {
+				segment.joinable.getAdapter().onDetachedFromRecyclerView(recyclerView);
+			}
+		}
+
+		/*
+		View holder callbacks go to adapter, which has bound the holder last (it's saved in item view
+		tag, because holder position can be already changed or joinable can be already removed). With
+		shared types it can be other adapter than the creator. Tag is cleared, when holder gets to the
+		pool, so pooled holders don't keep removed adapters (and their data) in memory. Tagged
+		holders are also counted by type, see obtainJoinedType.
+		 */
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void onViewAttachedToWindow(ViewHolder holder) {
+			RecyclerView.Adapter owner = getOwner(holder);
+			if (owner != null) {
+				owner.onViewAttachedToWindow(holder);
+			}
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void onViewDetachedFromWindow(ViewHolder holder) {
+			RecyclerView.Adapter owner = getOwner(holder);
+			if (owner != null) {
+				owner.onViewDetachedFromWindow(holder);
+			}
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public void onViewRecycled(ViewHolder holder) {
+			RecyclerView.Adapter owner = getOwner(holder);
+			if (owner != null) {
+				owner.onViewRecycled(holder);
+				onHolderReleased(holder);
+			}
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public boolean onFailedToRecycleView(ViewHolder holder) {
+			RecyclerView.Adapter owner = getOwner(holder);
+			if (owner == null) return false;
+			boolean recycle = owner.onFailedToRecycleView(holder);
+			if (!recycle) {//recycler drops holder
+				onHolderReleased(holder);
+			}
+			return recycle;
+		}
+
+		@Nullable
+		private RecyclerView.Adapter getOwner(ViewHolder holder) {
+			return (RecyclerView.Adapter) holder.itemView.getTag(R.id.rv_joiner_owner);
+		}
+
+		//holder is new or from the pool, if it has no owner (parent counts holders of nested joiner)
+		private void onHolderBound(ViewHolder holder, Segment segment) {
+			if (!isNested()) {
+				if (getOwner(holder) == null) {
+					increment(mJoinedTypeToHolderCount, holder.getItemViewType());
+				}
+				Integer namespace = (Integer) holder.itemView.getTag(R.id.rv_joiner_id_namespace);
+				if (namespace == null || namespace != segment.idNamespace) {//can be rebound
+					if (namespace != null) {
+						decrement(mIdNamespaceToHolderCount, namespace);
+					}
+					increment(mIdNamespaceToHolderCount, segment.idNamespace);
+					holder.itemView.setTag(R.id.rv_joiner_id_namespace, segment.idNamespace);
+				}
+			}
+			if (!(segment.joinable instanceof NestedJoinable)) {//nested joiner sets real owner
+				holder.itemView.setTag(R.id.rv_joiner_owner, segment.joinable.getAdapter());
+			}
+		}
+
+		//holder gets to the pool or is dropped by recycler
+		private void onHolderReleased(ViewHolder holder) {
+			holder.itemView.setTag(R.id.rv_joiner_owner, null);
+			decrement(mJoinedTypeToHolderCount, holder.getItemViewType());
+			Integer namespace = (Integer) holder.itemView.getTag(R.id.rv_joiner_id_namespace);
+			if (namespace != null) {
+				holder.itemView.setTag(R.id.rv_joiner_id_namespace, null);
+				decrement(mIdNamespaceToHolderCount, namespace);
+			}
+		}
+
+		private static void increment(SparseIntArray counts, int key) {
+			counts.put(key, counts.get(key) + 1);
+		}
+
+		//keys with 0 are deleted
+		private static void decrement(SparseIntArray counts, int key) {
+			int count = counts.get(key) - 1;
+			if (count > 0) {
+				counts.put(key, count);
+			} else {
+				counts.delete(key);
+			}
+		}
+
+		@Override
+		public int getItemViewType(int joinedPosition) {
+			resolvePosition(joinedPosition);
+			return mResolvedSegment.getJoinedType(mResolvedRealPosition);
+		}
+
+		private int getJoinableCountInternal() {
+			return mSegments.size();
+		}
+
+		/**
+		 * The same as {@link #resolvePosition(int)}, but doesn't throw
+		 * @return true if position exists and was resolved
+		 */
+		private boolean tryResolvePosition(int joinedPosition) {
+			if (joinedPosition < 0 || joinedPosition >= mIndex.getTotalCount()) return false;
+			resolvePosition(joinedPosition);
+			return true;
+		}
+
+		/**
+		 * Finds segment and real position for joined position and saves it to mResolved* fields.
+		 * @throws IndexOutOfBoundsException if position doesn't exist
+		 */
+		private void resolvePosition(int joinedPosition) {
+			if (joinedPosition == mResolvedPosition && mResolvedSegment != null) return;
+			int segmentIndex = mIndex.findSegment(joinedPosition);
+			if (segmentIndex < 0) {
+				throw new IndexOutOfBoundsException("Joined position " + joinedPosition
+						+ " doesn't exist, item count is " + mIndex.getTotalCount());
+			}
+			mResolvedSegment = mSegments.get(segmentIndex);
+			mResolvedRealPosition = mResolvedSegment.getRealPosition(
+					joinedPosition - mIndex.getStart(segmentIndex));
+			mResolvedPosition = joinedPosition;
+		}
+
+		/**
+		 * Should be called after any index modification to drop position dependent caches
+		 */
+		private void postIndexChanged() {
+			mSnapshotCountsChanged = true;
+			mResolvedPosition = RecyclerView.NO_POSITION;
+			mResolvedSegment = null;
+			invalidateSpanIndexCache();
+		}
+
+		/**
+		 * @return joined position for first element of joinable,
+		 * or {@link RecyclerView#NO_POSITION} if joinable is not added
+		 */
+		private int getJoinableStartPosition(Joinable joinable) {
+			Segment segment = mJoinableToSegment.get(joinable);
+			return segment != null ? mIndex.getStart(segment.index) : RecyclerView.NO_POSITION;
+		}
+
+		private int getJoinableItemCountInternal(Joinable joinable) {
+			Segment segment = mJoinableToSegment.get(joinable);
+			return segment != null ? mIndex.getCount(segment.index) : 0;
+		}
+
+		private Joinable getJoinableByLocationInternal(int location) {
+			return mSegments.get(location).joinable;
+		}
+
+		private int getJoinableLocationInternal(Joinable joinable) {
+			Segment segment = mJoinableToSegment.get(joinable);
+			return segment != null ? segment.index : -1;
+		}
+
+		private boolean addJoinableInternal(@NonNull Joinable joinable, int location) {
+			if (!mJoinableToSegment.containsKey(joinable)) {
+				if (location < 0 || location > mSegments.size()) {
+					throw new IndexOutOfBoundsException("Invalid location " + location
+							+ ", joinable count is " + mSegments.size());
+				}
+				if (joinable instanceof NestedJoinable
+						&& isNestedIn(((NestedJoinable) joinable).mHostAdapter)) {
+					throw new IllegalArgumentException("Joiner can't be nested in itself");
+				}
+				checkIdNamespaceLimit(mSegments.size() + 1, mIdMode);
+				long startNanos = mMetricsListener != null ? System.nanoTime() : 0;
+				Segment segment = newSegment(joinable);
+				mSegments.add(location, segment);
+				mJoinableToSegment.put(joinable, segment);
+				updateSegmentIndexes(location);
+				int itemCount = getInitialItemCount(segment);
+				mIndex.insert(location, itemCount);
+				postIndexChanged();
+				postStructureChanged(joinable);
+				mSnapshotStructureChanged = true;
+				postTypesChanged();
+				if (mMetricsListener != null) {
+					reportRebuild(MetricsListener.REBUILD_STRUCTURE_CHANGED, startNanos);
+				}
+				onJoinableAdded(joinable);
+				beginBatchInternal();
+				dispatchUpdate(UpdateBuffer.TYPE_INSERT, mIndex.getStart(location), itemCount);
+				updateSectionHeaders();
+				endBatchInternal();
+				return true;
+			}
+			return false;
+		}
+
+		private boolean removeJoinableInternal(@NonNull Joinable joinable) {
+			Segment segment = mJoinableToSegment.get(joinable);
+			if (segment != null) {//if exist
+				long startNanos = mMetricsListener != null ? System.nanoTime() : 0;
+				//save this before removing
+				int positionStart = mIndex.getStart(segment.index);
+				int itemCount = mIndex.getCount(segment.index);
+				mSegments.remove(segment.index);
+				mJoinableToSegment.remove(joinable);
+				mIndex.remove(segment.index);
+				updateSegmentIndexes(segment.index);
+				postIndexChanged();
+				releaseJoinedTypes(segment);
+				releaseIdNamespace(segment);
+				mSnapshotStructureChanged = true;
+				postTypesChanged();
+				if (mMetricsListener != null) {
+					reportRebuild(MetricsListener.REBUILD_STRUCTURE_CHANGED, startNanos);
+				}
+				onJoinableRemoved(joinable);
+				beginBatchInternal();
+				dispatchUpdate(UpdateBuffer.TYPE_REMOVE, positionStart, itemCount);
+				updateSectionHeaders();
+				endBatchInternal();
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Bulk structure change: joined joinables become the given ones in the given order.
+		 * Joinables, which stay joined, keep their segments (types, counts and view holders),
+		 * and the lightest of them (by item count) are moved, so others keep their places (see
+		 * {@link MovePlanner}). Others are removed and new ones are inserted. Index is rebuilt
+		 * once, and all notifications are merged in a batch: removals (going from the end), then
+		 * moves, then insertions (going from the start, at final positions).
+		 * @param joinables new joinables, without nulls and duplicates
+		 * @return false if nothing was changed
+		 * @throws IllegalArgumentException if joiner is going to be nested in itself
+		 * @throws IllegalStateException if there are too many joinables for id mode
+		 */
+		private boolean setJoinablesInternal(List<Joinable> joinables) {
+			boolean changed = joinables.size() != mSegments.size();
+			List<Segment> stayingSegments = new ArrayList<>(joinables.size());//in new order
+			Map<Segment, Boolean> staying = new IdentityHashMap<>();
+			for (int i = 0; i < joinables.size(); i++) {
+				Joinable joinable = joinables.get(i);
+				Segment segment = mJoinableToSegment.get(joinable);
+				if (segment != null) {
+					stayingSegments.add(segment);
+					staying.put(segment, true);
+					changed |= segment.index != i;
+				} else if (joinable instanceof NestedJoinable
+						&& isNestedIn(((NestedJoinable) joinable).mHostAdapter)) {//before change
+					throw new IllegalArgumentException("Joiner can't be nested in itself");
+				} else {
+					changed = true;
+				}
+			}
+			if (!changed) return false;
+			checkIdNamespaceLimit(joinables.size(), mIdMode);
+			long startNanos = mMetricsListener != null ? System.nanoTime() : 0;
+			beginBatchInternal();
+			List<Segment> remainingSegments = new ArrayList<>(stayingSegments.size());//old order
+			for (Segment segment : mSegments) {
+				if (staying.containsKey(segment)) {
+					remainingSegments.add(segment);
+				}
+			}
+			//positions of removals are valid one by one, while going from the end
+			List<Joinable> removedJoinables = new ArrayList<>();
+			for (int i = mSegments.size() - 1; i >= 0; i--) {
+				Segment segment = mSegments.get(i);
+				if (staying.containsKey(segment)) continue;
+				dispatchUpdate(UpdateBuffer.TYPE_REMOVE, mIndex.getStart(i), mIndex.getCount(i));
+				mJoinableToSegment.remove(segment.joinable);
+				releaseJoinedTypes(segment);
+				releaseIdNamespace(segment);
+				removedJoinables.add(segment.joinable);
+			}
+			dispatchSegmentMoves(remainingSegments, stayingSegments);
+			List<Segment> segments = new ArrayList<>(joinables.size());
+			List<Joinable> addedJoinables = new ArrayList<>();
+			int[] counts = new int[joinables.size()];
+			for (int i = 0; i < joinables.size(); i++) {
+				Joinable joinable = joinables.get(i);
+				Segment segment = mJoinableToSegment.get(joinable);
+				if (segment != null) {
+					counts[i] = mIndex.getCount(segment.index);
+				} else {
+					segment = newSegment(joinable);
+					mJoinableToSegment.put(joinable, segment);
+					counts[i] = getInitialItemCount(segment);
+					addedJoinables.add(joinable);
+				}
+				segments.add(segment);
+			}
+			mSegments = segments;
+			updateSegmentIndexes(0);
+			mIndex.setCounts(counts, counts.length);
+			postIndexChanged();
+			for (Joinable joinable : addedJoinables) {
+				postStructureChanged(joinable);
+			}
+			mSnapshotStructureChanged = true;
+			if (!removedJoinables.isEmpty() || !addedJoinables.isEmpty()) {
+				postTypesChanged();
+			}
+			if (mMetricsListener != null) {
+				reportRebuild(MetricsListener.REBUILD_STRUCTURE_CHANGED, startNanos);
+			}
+			for (Joinable joinable : removedJoinables) {
+				onJoinableRemoved(joinable);
+			}
+			//positions of insertions are final ones, so they are valid one by one from the start
+			for (Joinable joinable : addedJoinables) {
+				onJoinableAdded(joinable);
+				Segment segment = mJoinableToSegment.get(joinable);
+				dispatchUpdate(UpdateBuffer.TYPE_INSERT, mIndex.getStart(segment.index),
+						mIndex.getCount(segment.index));
+			}
+			updateSectionHeaders();
+			endBatchInternal();
+			return true;
+		}
+
+		/**
+		 * Notifies about moves of segments, which don't stay in place. Every moved segment is
+		 * placed right after its new predecessor, so after all moves the order is the new one.
+		 * It's O(J) for every moved segment, counts are taken from index (it's not changed yet).
+		 * @param oldOrder segments in old order (mutable copy)
+		 * @param newOrder the same segments in new order
+		 */
+		private void dispatchSegmentMoves(List<Segment> oldOrder, List<Segment> newOrder) {
+			int size = newOrder.size();
+			int[] oldLocations = new int[size];
+			long[] weights = new long[size];
+			for (int i = 0; i < size; i++) {
+				Segment segment = newOrder.get(i);
+				oldLocations[i] = segment.index;//increasing in old order, that's enough
+				weights[i] = mIndex.getCount(segment.index) + 1L;//moving empty one isn't free
+			}
+			boolean[] stayingInPlace = MovePlanner.findStaying(oldLocations, weights);
+			for (int i = 0; i < size; i++) {
+				if (stayingInPlace[i]) continue;
+				Segment segment = newOrder.get(i);
+				int fromLocation = oldOrder.indexOf(segment);
+				int fromPosition = getStart(oldOrder, fromLocation);
+				oldOrder.remove(fromLocation);
+				int toLocation = i == 0 ? 0 : oldOrder.indexOf(newOrder.get(i - 1)) + 1;
+				oldOrder.add(toLocation, segment);
+				dispatchRangeMove(fromPosition, getStart(oldOrder, toLocation),
+						mIndex.getCount(segment.index));
+			}
+		}
+
+		//joined start of segment at location in given order
+		private int getStart(List<Segment> order, int location) {
+			int start = 0;
+			for (int i = 0; i < location; i++) {
+				start += mIndex.getCount(order.get(i).index);
+			}
+			return start;
+		}
+
+		/**
+		 * Returns segment with the smallest free id namespace, or with new one. Like free types
+		 * (see {@link #obtainJoinedType()}), free namespace isn't reused, while recycler has
+		 * bound holders of removed joinable: new joinable can have the same raw ids, and its
+		 * items would get ids of old holders.
+		 */
+		private Segment newSegment(Joinable joinable) {
+			Segment segment = new Segment(joinable);
+			segment.idNamespace = RecyclerView.NO_POSITION;
+			for (int i = 0; i < mFreeIdNamespaces.size(); i++) {
+				int namespace = mFreeIdNamespaces.keyAt(i);
+				if (mIdNamespaceToHolderCount.get(namespace) == 0) {
+					mFreeIdNamespaces.delete(namespace);
+					segment.idNamespace = namespace;
+					break;
+				}
+			}
+			if (segment.idNamespace == RecyclerView.NO_POSITION) {
+				segment.idNamespace = mLastIdNamespace++;
+			}
+			segment.idSalt = ItemIds.getSalt(segment.idNamespace);
+			segment.filterVersion = ++mLastFilterVersion;
+			return segment;
+		}
+
+		//nested joiner doesn't count holders (they are in parent's recycler), so never reuses
+		private void releaseIdNamespace(Segment segment) {
+			if (!isNested()) {
+				mFreeIdNamespaces.put(segment.idNamespace, true);
+			}
+		}
+
+		/**
+		 * @throws IllegalStateException if joinable count doesn't fit namespaces of id mode
+		 */
+		private void checkIdNamespaceLimit(int joinableCount, int idMode) {
+			if (idMode == ID_MODE_HIGH_BITS
+					&& joinableCount > ItemIds.MAX_HIGH_BITS_NAMESPACE + 1) {
+				throw new IllegalStateException("Too many joinables for high bits id mode: "
+						+ joinableCount);
+			}
+		}
+
+		private void setIdModeInternal(int idMode) {
+			if (mIdMode == idMode) return;
+			mIdMode = idMode;
+			if (hasStableIds() && getItemCount() > 0) {
+				dispatchUpdate(UpdateBuffer.TYPE_RESET, 0, 0);//all ids are changed
+			}
+		}
+
+		//sets up nested joiner and recycler views for joinable, which types are registered
+		private void onJoinableAdded(Joinable joinable) {
+			if (joinable instanceof NestedJoinable) {
+				HostAdapter nested = ((NestedJoinable) joinable).mHostAdapter;
+				nested.mParents.add(this);
+				SparseIntArray nestedMaxes = nested.mJoinedTypeToMaxRecycledViews;
+				for (int i = 0; i < nestedMaxes.size(); i++) {
+					setMaxRecycledViewsInternal(joinable, nestedMaxes.keyAt(i),
+							nestedMaxes.valueAt(i));
+				}
+			}
+			for (RecyclerView recyclerView : getRecyclerViews()) {
+				joinable.getAdapter().onAttachedToRecyclerView(recyclerView);
+			}
+		}
+
+		private void onJoinableRemoved(Joinable joinable) {
+			if (joinable instanceof NestedJoinable) {
+				((NestedJoinable) joinable).mHostAdapter.mParents.remove(this);
+			}
+			for (RecyclerView recyclerView : getRecyclerViews()) {
+				joinable.getAdapter().onDetachedFromRecyclerView(recyclerView);
+			}
+		}
+
+		//segments from location have been shifted, so update their indexes
+		private void updateSegmentIndexes(int fromLocation) {
+			for (int i = fromLocation; i < mSegments.size(); i++) {
+				mSegments.get(i).index = i;
+			}
+		}
+
+		/**
+		 * Should be called after any structure changing (changes in {@link #mSegments}).
+		 * Structure modifications changes data, so call notify method after using this method, or
+		 * call {@link #postDataSetChanged()}
+		 */
+		private void postStructureChanged(Joinable diffJoinable) {
+			Segment segment = mJoinableToSegment.get(diffJoinable);
+			if (segment != null) {//if was added
+				SparseIntArray realToJoinedTypes = new SparseIntArray(diffJoinable.getTypeCount());
+				for (int i = 0; i < diffJoinable.getTypeCount(); i++) {
+					realToJoinedTypes.put(diffJoinable.getTypeByIndex(i),
+							registerJoinedType(diffJoinable, i));
+				}
+				segment.setJoinedTypes(realToJoinedTypes);
+				if (diffJoinable instanceof NestedJoinable) {
+					segment.typeCreators = getTypeCreators((NestedJoinable) diffJoinable);
+				}
+			}
+		}
+
+		//return joined type for joinable type (new or shared with other joinable)
+		private int registerJoinedType(Joinable joinable, int typeIndex) {
+			int realType = joinable.getTypeByIndex(typeIndex);
+			Object typeKey = joinable instanceof SharedTypes
+					? ((SharedTypes) joinable).getTypeKey(typeIndex) : null;
+			Integer sharedType = typeKey != null ? mTypeKeyToJoinedType.get(typeKey) : null;
+			if (sharedType != null) {
+				mJoinedTypeToOwners.get(sharedType).add(joinable);
+				return sharedType;
+			}
+			int newTypeId = obtainJoinedType();
+			mJoinedTypeToJoinable.put(newTypeId, joinable);
+			mJoinedTypeToRealType.put(newTypeId, realType);
+			if (typeKey != null) {
+				List<Joinable> owners = new ArrayList<>();
+				owners.add(joinable);
+				mJoinedTypeToOwners.put(newTypeId, owners);
+				mJoinedTypeToKey.put(newTypeId, typeKey);
+				mTypeKeyToJoinedType.put(typeKey, newTypeId);
+			}
+			return newTypeId;
+		}
+
+		/**
+		 * Called by nested joiner, when its types (real types for us) have changed. New types are
+		 * registered, types which aren't declared anymore are released, other types are kept.
+		 * Kept type is remapped, if nested joiner creates its holders by other way now (our pool
+		 * can have holders of old creator, so they can't be bound by new one).
+		 */
+		private void onJoinableTypesChanged(NestedJoinable joinable) {
+			Segment segment = mJoinableToSegment.get(joinable);
+			if (segment == null) return;
+			SparseIntArray oldTypes = segment.realToJoinedTypes;
+			SparseArray<Object> oldCreators = segment.typeCreators;
+			SparseArray<Object> newCreators = getTypeCreators(joinable);
+			SparseIntArray newTypes = new SparseIntArray(joinable.getTypeCount());
+			for (int i = 0; i < joinable.getTypeCount(); i++) {
+				int realType = joinable.getTypeByIndex(i);
+				int joinedType = oldTypes.get(realType, RecyclerView.INVALID_TYPE);
+				if (joinedType != RecyclerView.INVALID_TYPE
+						&& !equal(oldCreators.get(realType), newCreators.get(realType))) {
+					releaseJoinedType(joinable, joinedType);
+					joinedType = RecyclerView.INVALID_TYPE;
+				}
+				newTypes.put(realType, joinedType != RecyclerView.INVALID_TYPE
+						? joinedType : registerJoinedType(joinable, i));
+			}
+			for (int i = 0; i < oldTypes.size(); i++) {
+				if (newTypes.indexOfKey(oldTypes.keyAt(i)) < 0) {
+					releaseJoinedType(joinable, oldTypes.valueAt(i));
+				}
+			}
+			segment.setJoinedTypes(newTypes);
+			segment.typeCreators = newCreators;
+			mSnapshotStructureChanged = true;
+			publishSnapshot();
+			postTypesChanged();
+		}
+
+		//creator of nested type holders: type key for shared types, joinable for others
+		private static SparseArray<Object> getTypeCreators(NestedJoinable joinable) {
+			HostAdapter nested = joinable.mHostAdapter;
+			SparseArray<Object> creators = new SparseArray<>(nested.mJoinedTypeToJoinable.size());
+			for (int i = 0; i < nested.mJoinedTypeToJoinable.size(); i++) {
+				int joinedType = nested.mJoinedTypeToJoinable.keyAt(i);
+				Object typeKey = nested.mJoinedTypeToKey.get(joinedType);
+				creators.put(joinedType, typeKey != null
+						? typeKey : nested.mJoinedTypeToJoinable.valueAt(i));
+			}
+			return creators;
+		}
+
+		private static boolean equal(Object a, Object b) {
+			return a == null ? b == null : a.equals(b);
+		}
+
+		//nested joiner types are real types of parents, so let them know about changes
+		private void postTypesChanged() {
+			for (int i = 0; i < mParents.size(); i++) {
+				mParents.get(i).onJoinableTypesChanged(mNestedJoinable);
+			}
+		}
+
+		private boolean isNested() {
+			return !mParents.isEmpty();
+		}
+
+		//true if this is the same adapter as other, or is nested in it (directly or not)
+		private boolean isNestedIn(HostAdapter other) {
+			if (this == other) return true;
+			for (HostAdapter parent : mParents) {
+				if (parent.isNestedIn(other)) return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Returns free type id of removed joinable, or generates new one. Free type stays in
+		 * quarantine, while recycler has its bound holders (attached, in view cache, or removing
+		 * with animation): they get into the pool later, and would be bound by the new owner.
+		 * Pooled holders of old joinable are dropped before reuse. Nested joiner never reuses
+		 * types: its holders are in parent's recycler, and parent maps nested types to own ones.
+		 */
+		private int obtainJoinedType() {
+			if (!isNested()) {
+				for (int i = 0; i < mFreeJoinedTypes.size(); i++) {
+					int joinedType = mFreeJoinedTypes.keyAt(i);
+					if (mJoinedTypeToHolderCount.get(joinedType) == 0) {
+						mFreeJoinedTypes.delete(joinedType);
+						purgeRecycledViews(joinedType);
+						return joinedType;
+					}
+				}
+			}
+			return mLastGeneratedJoinedTypeId++;
+		}
+
+		private void releaseJoinedTypes(Segment segment) {
+			SparseIntArray realToJoinedTypes = segment.realToJoinedTypes;
+			for (int i = 0; i < realToJoinedTypes.size(); i++) {
+				releaseJoinedType(segment.joinable, realToJoinedTypes.valueAt(i));
+			}
+		}
+
+		private void releaseJoinedType(Joinable joinable, int joinedType) {
+			List<Joinable> owners = mJoinedTypeToOwners.get(joinedType);
+			if (owners != null) {//shared type
+				owners.remove(joinable);
+				if (!owners.isEmpty()) {
+					if (mJoinedTypeToJoinable.get(joinedType) == joinable) {
+						//other owner creates view holders now
+						Segment owner = mJoinableToSegment.get(owners.get(0));
+						mJoinedTypeToJoinable.put(joinedType, owner.joinable);
+						mJoinedTypeToRealType.put(joinedType, owner.realToJoinedTypes.keyAt(
+								owner.realToJoinedTypes.indexOfValue(joinedType)));
+					}
+					return;
+				}
+				mJoinedTypeToOwners.delete(joinedType);
+				mTypeKeyToJoinedType.remove(mJoinedTypeToKey.get(joinedType));
+				mJoinedTypeToKey.delete(joinedType);
+			}
+			mJoinedTypeToJoinable.delete(joinedType);
+			mJoinedTypeToRealType.delete(joinedType);
+			if (!isNested()) {//nested joiner doesn't reuse types, see obtainJoinedType
+				mFreeJoinedTypes.put(joinedType, true);
+			}
+			mJoinedTypeToPrewarmCount.delete(joinedType);
+			mJoinedTypeToMaxRecycledViews.delete(joinedType);
+			mJoinedTypeToSpanSize.delete(joinedType);
+			purgeRecycledViews(joinedType);
+		}
+
+		//drops pooled view holders of type, so they don't hold removed joinable views in memory
+		private void purgeRecycledViews(int joinedType) {
+			if (isNested()) return;//parent purges its type
+			for (RecyclerView recyclerView : getRecyclerViews()) {
+				RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+				pool.setMaxRecycledViews(joinedType, 0);
+				pool.setMaxRecycledViews(joinedType, getMaxRecycledViews(joinedType));
+			}
+		}
+
+		//attached recycler views, which are still alive
+		private List<RecyclerView> getRecyclerViews() {
+			List<RecyclerView> recyclerViews = new ArrayList<>(mRecyclerViews.size());
+			for (int i = mRecyclerViews.size() - 1; i >= 0; i--) {
+				RecyclerView recyclerView = mRecyclerViews.get(i).get();
+				if (recyclerView == null) {
+					mRecyclerViews.remove(i);
+				} else {
+					recyclerViews.add(recyclerView);
+				}
+			}
+			return recyclerViews;
+		}
+
+		/*
+		Pool tuning. Joined types are hidden from user, so we save pool sizes here and apply them
+		to pools of all attached recycler views.
+		 */
+
+		/**
+		 * @return joined type of joinable real type
+		 * @throws IllegalArgumentException if joinable isn't added or hasn't declared real type
+		 */
+		private int getJoinedType(Joinable joinable, int realType) {
+			Segment segment = mJoinableToSegment.get(joinable);
+			int joinedType = segment == null ? RecyclerView.INVALID_TYPE
+					: segment.realToJoinedTypes.get(realType, RecyclerView.INVALID_TYPE);
+			if (joinedType == RecyclerView.INVALID_TYPE) {
+				throw new IllegalArgumentException("Joinable isn't added or hasn't type " + realType);
+			}
+			return joinedType;
+		}
+
+		private int getMaxRecycledViews(int joinedType) {
+			return mJoinedTypeToMaxRecycledViews.get(joinedType, DEFAULT_MAX_RECYCLED_VIEWS);
+		}
+
+		private void setMaxRecycledViewsInternal(Joinable joinable, int realType, int max) {
+			int joinedType = getJoinedType(joinable, realType);
+			mJoinedTypeToMaxRecycledViews.put(joinedType, max);
+			for (int i = 0; i < mParents.size(); i++) {
+				mParents.get(i).setMaxRecycledViewsInternal(mNestedJoinable, joinedType, max);
+			}
+			if (isNested()) return;
+			for (RecyclerView recyclerView : getRecyclerViews()) {
+				recyclerView.getRecycledViewPool().setMaxRecycledViews(joinedType, max);
+			}
+		}
+
+		private void prewarmInternal(Joinable joinable, int realType, int count) {
+			int joinedType = getJoinedType(joinable, realType);
+			if (isNested()) {//parent creates view holders for its pool
+				for (int i = 0; i < mParents.size(); i++) {
+					mParents.get(i).prewarmInternal(mNestedJoinable, joinedType, count);
+				}
+				return;
+			}
+			if (getMaxRecycledViews(joinedType) < count) {//else pool drops them
+				setMaxRecycledViewsInternal(joinable, realType, count);
+			}
+			mJoinedTypeToPrewarmCount.put(joinedType, count);
+			schedulePrewarm();
+		}
+
+		/*
+		Grid span sizes. Joinable span size is saved in segment, type span size - by joined type.
+		 */
+
+		private GridLayoutManager.SpanSizeLookup getSpanSizeLookupInternal() {
+			if (mSpanSizeLookup == null) {
+				mSpanSizeLookup = new JoinedSpanSizeLookup();
+			}
+			return mSpanSizeLookup;
+		}
+
+		private void setSpanSizeInternal(Joinable joinable, int spanSize) {
+			Segment segment = mJoinableToSegment.get(joinable);
+			if (segment == null) {
+				throw new IllegalArgumentException("Joinable isn't added");
+			}
+			segment.spanSize = spanSize;
+			invalidateSpanIndexCache();
+		}
+
+		private void setSpanSizeInternal(Joinable joinable, int realType, int spanSize) {
+			int joinedType = getJoinedType(joinable, realType);
+			if (spanSize > 0) {
+				mJoinedTypeToSpanSize.put(joinedType, spanSize);
+			} else {
+				mJoinedTypeToSpanSize.delete(joinedType);
+			}
+			invalidateSpanIndexCache();
+		}
+
+		private void invalidateSpanIndexCache() {
+			if (mSpanSizeLookup != null) {
+				mSpanSizeLookup.invalidateSpanIndexCache();
+			}
+		}
+
+		private void schedulePrewarm() {
+			if (!isNested() && !mPrewarmScheduled && mJoinedTypeToPrewarmCount.size() > 0
+					&& !getRecyclerViews().isEmpty()) {
+				Looper.myQueue().addIdleHandler(mPrewarmer);
+				mPrewarmScheduled = true;
+			}
+		}
+
+		private class JoinedSpanSizeLookup extends GridLayoutManager.SpanSizeLookup {
+
+			private JoinedSpanSizeLookup() {
+				setSpanIndexCacheEnabled(true);
+			}
+
+			@Override
+			public int getSpanSize(int position) {
+				if (!tryResolvePosition(position)) return DEFAULT_SPAN_SIZE;
+				if (mJoinedTypeToSpanSize.size() > 0) {
+					int spanSize = mJoinedTypeToSpanSize.get(
+							mResolvedSegment.getJoinedType(mResolvedRealPosition), 0);
+					if (spanSize > 0) return spanSize;
+				}
+				return mResolvedSegment.spanSize > 0 ? mResolvedSegment.spanSize : DEFAULT_SPAN_SIZE;
+			}
+
+		}
+
+		/**
+		 * Creates one view holder for every attached recycler view per idle call, so main thread
+		 * isn't blocked for a long time, and puts them to pool.
+		 */
+		private class Prewarmer implements MessageQueue.IdleHandler {
+
+			@Override
+			public boolean queueIdle() {
+				List<RecyclerView> recyclerViews = getRecyclerViews();
+				if (recyclerViews.isEmpty() || mJoinedTypeToPrewarmCount.size() == 0) {
+					mPrewarmScheduled = false;//will be scheduled again on attach
+					return false;
+				}
+				int joinedType = mJoinedTypeToPrewarmCount.keyAt(0);
+				for (RecyclerView recyclerView : recyclerViews) {
+					recyclerView.getRecycledViewPool().putRecycledView(
+							createViewHolder(recyclerView, joinedType));
+				}
+				int restCount = mJoinedTypeToPrewarmCount.valueAt(0) - 1;
+				if (restCount > 0) {
+					mJoinedTypeToPrewarmCount.put(joinedType, restCount);
+				} else {
+					mJoinedTypeToPrewarmCount.delete(joinedType);
+				}
+				mPrewarmScheduled = mJoinedTypeToPrewarmCount.size() > 0;
+				return mPrewarmScheduled;
+			}
+
+		}
+
+		/**
+		 * Should be called after {@link #mHostAdapter} data set changing we can't translate to
+		 * segment updates (for ex. notify methods called on host adapter manually).
+		 * Re-reads item counts of all joinables, so it's O(J), not O(total items).
+		 */
+		private void postDataSetChanged() {
+			long startNanos = mMetricsListener != null ? System.nanoTime() : 0;
+			for (Segment segment : mSegments) {
+				resetMask(segment);
+				mIndex.setCount(segment.index, getVisibleItemCount(segment));
+				segment.invalidateTypes();
+			}
+			postIndexChanged();
+			if (mMetricsListener != null) {
+				reportRebuild(MetricsListener.REBUILD_DATA_SET_CHANGED, startNanos);
+			}
+			publishSnapshot();
+		}
+
+		//return null, if position doesn't exist. Fills reuse object if it's not null
+		private PositionInfo getPositionInfoInternal(int joinedPosition, PositionInfo reuse) {
+			if (!tryResolvePosition(joinedPosition)) {
+				Log.e(TAG, "getPositionInfoInternal: position doesn't exist: " + joinedPosition);
+				return null;
+			}
+			PositionInfo positionInfo = reuse != null ? reuse : new PositionInfo();
+			int realType = mResolvedSegment.getRealType(mResolvedRealPosition);
+			positionInfo.set(joinedPosition, mResolvedRealPosition, mResolvedSegment.joinable,
+					mResolvedSegment.getJoinedType(mResolvedRealPosition), realType);
+			return positionInfo;
+		}
+
+		/**
+		 * @param realPosition position in joinable, also can be equal to item count (position
+		 *                     after the last item, for insertions)
+		 * @return position, or {@link RecyclerView#NO_POSITION} if position doesn't exist
+		 */
+		private int getJoinedPosition(int realPosition, Joinable joinable) {
+			Segment segment = mJoinableToSegment.get(joinable);
+			if (segment != null && !segment.collapsed && realPosition >= 0
+					&& realPosition <= mIndex.getCount(segment.index)) {
+				return mIndex.getStart(segment.index) + realPosition;
+			} else {
+				return RecyclerView.NO_POSITION;
+			}
+		}
+
+		/**
+		 * @return position of shown item, or {@link RecyclerView#NO_POSITION} if item doesn't
+		 * exist or is hidden
+		 */
+		private int getJoinedPositionInternal(Joinable joinable, int realPosition) {
+			Segment segment = mJoinableToSegment.get(joinable);
+			if (segment == null || realPosition < 0) return RecyclerView.NO_POSITION;
+			int offset = segment.mask != null ? segment.mask.getOffset(realPosition) : realPosition;
+			return offset >= 0 && offset < mIndex.getCount(segment.index)
+					? mIndex.getStart(segment.index) + offset : RecyclerView.NO_POSITION;
+		}
+
+		/*
+		Collapsing. Collapsed segment has 0 count in index, and updates from its joinable are
+		ignored (getJoinedPosition returns NO_POSITION for it).
+		 */
+
+		private void setCollapsedInternal(Joinable joinable, boolean collapsed) {
+			Segment segment = mJoinableToSegment.get(joinable);
+			if (segment == null) {
+				throw new IllegalArgumentException("Joinable isn't added");
+			}
+			if (segment.collapsed == collapsed) return;
+			int positionStart = mIndex.getStart(segment.index);
+			beginBatchInternal();
+			if (collapsed) {
+				int itemCount = mIndex.getCount(segment.index);
+				segment.collapsed = true;
+				mIndex.setCount(segment.index, 0);
+				postIndexChanged();
+				dispatchUpdate(UpdateBuffer.TYPE_REMOVE, positionStart, itemCount);
+			} else {
+				segment.collapsed = false;
+				resetMask(segment);//updates were ignored while collapsed
+				int itemCount = getVisibleItemCount(segment);
+				mIndex.setCount(segment.index, itemCount);
+				segment.invalidateTypes();//could be changed while collapsed
+				postIndexChanged();
+				dispatchUpdate(UpdateBuffer.TYPE_INSERT, positionStart, itemCount);
+			}
+			updateSectionHeaderOf(segment.index);
+			endBatchInternal();
+		}
+
+		private boolean isCollapsedInternal(Joinable joinable) {
+			Segment segment = mJoinableToSegment.get(joinable);
+			return segment != null && segment.collapsed;
+		}
+
+		private int getVisibleItemCount(Segment segment) {
+			if (segment.collapsed) return 0;
+			return segment.mask != null ? segment.mask.size()
+					: segment.joinable.getAdapter().getItemCount();
+		}
+
+		/*
+		Filtering. While filter is set, segments can have visible masks: index counts only
+		visible items, and real positions are translated by mask. Data segment gets mask from
+		filter query result, or empty one (until result), when its items are re-read. Layout
+		(section header) has empty mask, when it's hidden, or no mask. Updates from masked
+		segment are translated by mask, inserted and changed items are checked on main thread.
+		 */
+
+		private void setFilterInternal(ItemFilter filter, boolean hideEmptySections) {
+			beginBatchInternal();
+			mFilter = filter;
+			mHideEmptySections = hideEmptySections;
+			if (mFilterRunner != null) {
+				mFilterRunner.setFilter(filter);//cancels running queries
+			}
+			for (Segment segment : mSegments) {
+				if (filter == null) {
+					if (segment.mask != null) {
+						applyMask(segment, null);
+					}
+				} else if (!isLayout(segment)) {
+					submitFilterQuery(segment);
+				}
+			}
+			updateSectionHeaders();
+			endBatchInternal();
+		}
+
+		/**
+		 * If joinable was changed while it was checked, result is dropped (filter could fail
+		 * because of it) and joinable is checked again. If filter failed on unchanged data, it
+		 * will fail again, so all items are shown instead of none, and error is thrown here.
+		 */
+		private void applyFilterResultInternal(Joinable joinable, int version, VisibleMask mask,
+											   RuntimeException error) {
+			Segment segment = mJoinableToSegment.get(joinable);
+			if (segment == null || mFilter == null) return;
+			if (segment.filterVersion != version) {
+				submitFilterQuery(segment);
+				return;
+			}
+			beginBatchInternal();
+			applyMask(segment, error == null ? mask : VisibleMask.all(getRealCount(segment)));
+			updateSectionHeaderOf(segment.index);
+			endBatchInternal();
+			if (error != null) throw error;
+		}
+
+		private void submitFilterQuery(Segment segment) {
+			mFilterRunner.submit(segment.joinable, getRealCount(segment), segment.filterVersion);
+		}
+
+		/**
+		 * @return item count, which filter is applied to: count of joinable items, which joiner
+		 * knows about (it's read again for collapsed joinable)
+		 */
+		private int getRealCount(Segment segment) {
+			if (segment.mask != null) return segment.mask.getRealCount();
+			return segment.collapsed ? segment.joinable.getAdapter().getItemCount()
+					: mIndex.getCount(segment.index);
+		}
+
+		//count of joinable, which is going to be added, hides its items if filter is set
+		private int getInitialItemCount(Segment segment) {
+			int itemCount = segment.joinable.getAdapter().getItemCount();
+			if (mFilter == null || isLayout(segment)) return itemCount;
+			segment.mask = VisibleMask.empty(itemCount);
+			submitFilterQuery(segment);
+			return 0;
+		}
+
+		//hides items of masked segment until the next filter result, when count is read again
+		private void resetMask(Segment segment) {
+			if (segment.mask == null) return;
+			segment.mask = VisibleMask.empty(segment.joinable.getAdapter().getItemCount());
+			if (!isLayout(segment)) {
+				submitFilterQuery(segment);
+			}
+		}
+
+		/**
+		 * Replaces segment mask, notifying about items, which are hidden or shown. Masks are
+		 * walked together, so it's O(shown items) and every notification is a single item one
+		 * (they are merged in a batch).
+		 * @param mask new mask (with the same real count), or null to show all items
+		 */
+		private void applyMask(Segment segment, VisibleMask mask) {
+			VisibleMask oldMask = segment.mask;
+			segment.mask = mask;
+			if (segment.collapsed) return;
+			int realCount = oldMask != null ? oldMask.getRealCount()
+					: mIndex.getCount(segment.index);
+			int oldSize = oldMask != null ? oldMask.size() : realCount;
+			int newSize = mask != null ? mask.size() : realCount;
+			int joinedStart = mIndex.getStart(segment.index);
+			int offset = 0;
+			int oldOffset = 0;
+			int newOffset = 0;
+			while (oldOffset < oldSize || newOffset < newSize) {
+				int oldPosition = oldOffset < oldSize
+						? (oldMask != null ? oldMask.getRealPosition(oldOffset) : oldOffset)
+						: Integer.MAX_VALUE;
+				int newPosition = newOffset < newSize
+						? (mask != null ? mask.getRealPosition(newOffset) : newOffset)
+						: Integer.MAX_VALUE;
+				if (oldPosition == newPosition) {//still shown
+					oldOffset++;
+					newOffset++;
+					offset++;
+				} else if (oldPosition < newPosition) {//hidden
+					dispatchUpdate(UpdateBuffer.TYPE_REMOVE, joinedStart + offset, 1);
+					oldOffset++;
+				} else {//shown
+					dispatchUpdate(UpdateBuffer.TYPE_INSERT, joinedStart + offset, 1);
+					newOffset++;
+					offset++;
+				}
+			}
+			mIndex.setCount(segment.index, newSize);
+			postIndexChanged();
+		}
+
+		private void applyFilteredUpdate(Segment segment, int type, int positionStart,
+										 int itemCount, int toPosition, Object payload) {
+			if (segment.collapsed) return;//mask is reset on expand
+			beginBatchInternal();//index is changed after notifications
+			try {
+				VisibleMask mask = segment.mask;
+				VisibleMask newMask = translateFilteredUpdate(segment, type, positionStart,
+						itemCount, toPosition, payload);
+				if (newMask == null) return;
+				segment.mask = newMask;
+				mIndex.setCount(segment.index, newMask.size());
+				postIndexChanged();
+				if (mMetricsListener != null) {
+					reportFilteredUpdate(type, itemCount);
+				}
+				if (mask.size() == 0 || newMask.size() == 0) {//section can become (not) empty
+					updateSectionHeaderOf(segment.index);
+				}
+			} finally {
+				endBatchInternal();
+			}
+		}
+
+		//the same reports as for update of joinable, which isn't filtered
+		private void reportFilteredUpdate(int type, int itemCount) {
+			switch (type) {
+				case UpdateBuffer.TYPE_CHANGE:
+					mMetricsListener.onUpdateTranslated(MetricsListener.UPDATE_CHANGED, itemCount);
+					break;
+				case UpdateBuffer.TYPE_INSERT:
+					mMetricsListener.onUpdateTranslated(MetricsListener.UPDATE_INSERTED, itemCount);
+					break;
+				case UpdateBuffer.TYPE_REMOVE:
+					mMetricsListener.onUpdateTranslated(MetricsListener.UPDATE_REMOVED, itemCount);
+					break;
+				case UpdateBuffer.TYPE_MOVE:
+					mMetricsListener.onUpdateTranslated(MetricsListener.UPDATE_MOVED, itemCount);
+					break;
+				case UpdateBuffer.TYPE_RESET:
+					mMetricsListener.onUpdateTranslated(MetricsListener.UPDATE_DATA_SET_CHANGED, 0);
+					mMetricsListener.onFallback(MetricsListener.FALLBACK_DATA_SET_CHANGED,
+							mIndex.getTotalCount());
+					break;
+			}
+		}
+
+		/**
+		 * Notifies about update from joinable to masked segment: only about shown items. Moved
+		 * range (if it isn't a single item) is notified as removal and insertion of its shown
+		 * items, because they can be not adjacent.
+		 * @return new mask, changed the same way, or null if update is invalid
+		 */
+		private VisibleMask translateFilteredUpdate(Segment segment, int type, int positionStart,
+													int itemCount, int toPosition,
+													Object payload) {
+			VisibleMask mask = segment.mask;
+			int realCount = mask.getRealCount();
+			int joinedStart = mIndex.getStart(segment.index);
+			VisibleMask newMask;
+			switch (type) {
+				case UpdateBuffer.TYPE_CHANGE: {
+					if (positionStart < 0 || itemCount <= 0
+							|| positionStart + itemCount > realCount) {
+						return null;
+					}
+					boolean[] visible = acceptRange(segment, positionStart, itemCount);
+					newMask = mask.change(positionStart, visible);
+					int oldOffset = mask.getInsertOffset(positionStart);
+					int offset = oldOffset;
+					for (int i = 0; i < itemCount; i++) {
+						boolean wasVisible = oldOffset < mask.size()
+								&& mask.getRealPosition(oldOffset) == positionStart + i;
+						if (wasVisible) {
+							oldOffset++;
+						}
+						if (wasVisible && visible[i]) {
+							dispatchUpdate(UpdateBuffer.TYPE_CHANGE, joinedStart + offset++, 1,
+									payload);
+						} else if (wasVisible) {
+							dispatchUpdate(UpdateBuffer.TYPE_REMOVE, joinedStart + offset, 1);
+						} else if (visible[i]) {
+							dispatchUpdate(UpdateBuffer.TYPE_INSERT, joinedStart + offset++, 1);
+						}
+					}
+					segment.invalidateTypes(positionStart, positionStart + itemCount);
+					break;
+				}
+				case UpdateBuffer.TYPE_INSERT: {
+					if (positionStart < 0 || itemCount <= 0 || positionStart > realCount) {
+						return null;
+					}
+					newMask = mask.insert(positionStart,
+							acceptRange(segment, positionStart, itemCount));
+					dispatchUpdate(UpdateBuffer.TYPE_INSERT,
+							joinedStart + mask.getInsertOffset(positionStart),
+							newMask.size() - mask.size());
+					segment.invalidateTypes(positionStart, Integer.MAX_VALUE);//positions are shifted
+					break;
+				}
+				case UpdateBuffer.TYPE_REMOVE: {
+					if (positionStart < 0 || itemCount <= 0
+							|| positionStart + itemCount > realCount) {
+						return null;
+					}
+					newMask = mask.remove(positionStart, itemCount);
+					dispatchUpdate(UpdateBuffer.TYPE_REMOVE,
+							joinedStart + mask.getInsertOffset(positionStart),
+							mask.size() - newMask.size());
+					segment.invalidateTypes(positionStart, Integer.MAX_VALUE);//positions are shifted
+					break;
+				}
+				case UpdateBuffer.TYPE_MOVE: {
+					if (positionStart == toPosition || itemCount <= 0
+							|| Math.min(positionStart, toPosition) < 0
+							|| Math.max(positionStart, toPosition) + itemCount > realCount) {
+						return null;
+					}
+					newMask = mask.move(positionStart, toPosition, itemCount);
+					int from = Math.min(positionStart, toPosition);
+					int to = Math.max(positionStart, toPosition) + itemCount;
+					if (itemCount == 1) {
+						int fromOffset = mask.getOffset(positionStart);
+						if (fromOffset >= 0) {
+							dispatchRangeMove(joinedStart + fromOffset,
+									joinedStart + newMask.getOffset(toPosition), 1);
+						}
+					} else {
+						int offset = mask.getInsertOffset(from);
+						int shownCount = mask.getInsertOffset(to) - offset;
+						if (mMetricsListener != null && shownCount > 0) {
+							mMetricsListener.onFallback(MetricsListener.FALLBACK_MOVE_SPLIT,
+									shownCount);
+						}
+						dispatchUpdate(UpdateBuffer.TYPE_REMOVE, joinedStart + offset, shownCount);
+						dispatchUpdate(UpdateBuffer.TYPE_INSERT, joinedStart + offset, shownCount);
+					}
+					segment.invalidateTypes(from, to);
+					break;
+				}
+				case UpdateBuffer.TYPE_RESET: {
+					resetMask(segment);
+					newMask = segment.mask;
+					segment.invalidateTypes();
+					dispatchUpdate(UpdateBuffer.TYPE_RESET, 0, 0);
+					break;
+				}
+				default:
+					return null;
+			}
+			return newMask;
+		}
+
+		//checks items on main thread, layouts are shown only with their headers
+		private boolean[] acceptRange(Segment segment, int positionStart, int itemCount) {
+			boolean[] visible = new boolean[itemCount];
+			if (isLayout(segment)) return visible;//it's masked only if it's hidden
+			for (int i = 0; i < itemCount; i++) {
+				visible[i] = mFilter.accept(segment.joinable, positionStart + i);
+			}
+			return visible;
+		}
+
+		private static boolean isLayout(Segment segment) {
+			return segment.joinable instanceof JoinableLayout;
+		}
+
+		//O(J), after structure or filter changes
+		private void updateSectionHeaders() {
+			if (mFilter == null) return;//headers are shown, when filter is removed
+			for (int i = 0; i < mSegments.size(); i++) {
+				Segment segment = mSegments.get(i);
+				if (isLayout(segment)) {
+					setHeaderHidden(segment, isSectionEmpty(i));
+				}
+			}
+		}
+
+		//updates header of section, which contains segment, O(section size)
+		private void updateSectionHeaderOf(int location) {
+			if (mFilter == null) return;
+			for (int i = location; i >= 0; i--) {
+				Segment segment = mSegments.get(i);
+				if (isLayout(segment)) {
+					if (i < location) {//layout itself isn't in its section
+						setHeaderHidden(segment, isSectionEmpty(i));
+					}
+					return;
+				}
+			}
+		}
+
+		//true if there are joinables after layout (up to the next layout), and they show nothing
+		private boolean isSectionEmpty(int layoutLocation) {
+			if (mFilter == null || !mHideEmptySections) return false;
+			boolean hasJoinables = false;
+			for (int i = layoutLocation + 1; i < mSegments.size(); i++) {
+				Segment segment = mSegments.get(i);
+				if (isLayout(segment)) break;
+				if (segment.collapsed || mIndex.getCount(i) > 0) return false;
+				hasJoinables = true;
+			}
+			return hasJoinables;
+		}
+
+		private void setHeaderHidden(Segment segment, boolean hidden) {
+			if ((segment.mask != null) == hidden) return;
+			if (hidden) {
+				applyMask(segment, VisibleMask.empty(getRealCount(segment)));
+			} else {
+				applyMask(segment, null);
+			}
+		}
+
+		/*
+		Updates from joinables. Index is updated first (only one segment count), then we notify
+		about change in joined positions. Real positions are checked by getJoinedPosition.
+		 */
+
+		private void applyJoinableUpdate(Joinable joinable, int type, int positionStart,
+										 int itemCount, int toPosition, Object payload) {
+			Segment segment = mJoinableToSegment.get(joinable);
+			if (segment != null) {
+				segment.filterVersion = ++mLastFilterVersion;//running query of joinable is stale
+				if (segment.mask != null) {
+					applyFilteredUpdate(segment, type, positionStart, itemCount, toPosition,
+							payload);
+					return;
+				}
+			}
+			switch (type) {
+				case UpdateBuffer.TYPE_CHANGE:
+					onJoinableRangeChanged(joinable, positionStart, itemCount, payload);
+					break;
+				case UpdateBuffer.TYPE_INSERT:
+					onJoinableRangeInserted(joinable, positionStart, itemCount);
+					break;
+				case UpdateBuffer.TYPE_REMOVE:
+					onJoinableRangeRemoved(joinable, positionStart, itemCount);
+					break;
+				case UpdateBuffer.TYPE_MOVE:
+					onJoinableRangeMoved(joinable, positionStart, toPosition, itemCount);
+					break;
+				case UpdateBuffer.TYPE_RESET:
+					onJoinableChanged(joinable);
+					break;
+			}
+		}
+
+		private void onJoinableChanged(Joinable joinable) {
+			Segment segment = mJoinableToSegment.get(joinable);
+			if (segment == null || segment.collapsed) return;
+			mIndex.setCount(segment.index, joinable.getAdapter().getItemCount());
+			segment.invalidateTypes();
+			postIndexChanged();
+			if (mMetricsListener != null) {
+				mMetricsListener.onUpdateTranslated(MetricsListener.UPDATE_DATA_SET_CHANGED, 0);
+				mMetricsListener.onFallback(MetricsListener.FALLBACK_DATA_SET_CHANGED,
+						mIndex.getTotalCount());
+			}
+			//can't detect what happens with items, update all list
+			dispatchUpdate(UpdateBuffer.TYPE_RESET, 0, 0);
+		}
+
+		private void onJoinableRangeChanged(Joinable joinable, int positionStart, int itemCount,
+											Object payload) {
+			int joinedStart = getJoinedPosition(positionStart, joinable);
+			if (joinedStart == RecyclerView.NO_POSITION) return;
+			mJoinableToSegment.get(joinable).invalidateTypes(positionStart, positionStart + itemCount);
+			postIndexChanged();
+			if (mMetricsListener != null) {
+				mMetricsListener.onUpdateTranslated(MetricsListener.UPDATE_CHANGED, itemCount);
+			}
+			dispatchUpdate(UpdateBuffer.TYPE_CHANGE, joinedStart, itemCount, payload);
+		}
+
+		private void onJoinableRangeInserted(Joinable joinable, int positionStart, int itemCount) {
+			int joinedStart = getJoinedPosition(positionStart, joinable);
+			if (joinedStart == RecyclerView.NO_POSITION) return;
+			Segment segment = mJoinableToSegment.get(joinable);
+			mIndex.setCount(segment.index, mIndex.getCount(segment.index) + itemCount);
+			segment.invalidateTypes(positionStart, Integer.MAX_VALUE);//positions are shifted
+			postIndexChanged();
+			if (mMetricsListener != null) {
+				mMetricsListener.onUpdateTranslated(MetricsListener.UPDATE_INSERTED, itemCount);
+			}
+			dispatchUpdate(UpdateBuffer.TYPE_INSERT, joinedStart, itemCount);
+		}
+
+		private void onJoinableRangeRemoved(Joinable joinable, int positionStart, int itemCount) {
+			int joinedStart = getJoinedPosition(positionStart, joinable);
+			if (joinedStart == RecyclerView.NO_POSITION) return;
+			Segment segment = mJoinableToSegment.get(joinable);
+			mIndex.setCount(segment.index, mIndex.getCount(segment.index) - itemCount);
+			segment.invalidateTypes(positionStart, Integer.MAX_VALUE);//positions are shifted
+			postIndexChanged();
+			if (mMetricsListener != null) {
+				mMetricsListener.onUpdateTranslated(MetricsListener.UPDATE_REMOVED, itemCount);
+			}
+			dispatchUpdate(UpdateBuffer.TYPE_REMOVE, joinedStart, itemCount);
+		}
+
+		/**
+		 * Range move means that items [fromPosition .. fromPosition + itemCount) were moved, so
+		 * now they start from toPosition. Recycler can move only single item, so we either move
+		 * one by one the smaller of two blocks (moved one and the one it jumped over), or, if
+		 * even it is too big, remove it and insert to new place (only this block loses animation).
+		 * Item count isn't changed, so index stays the same.
+		 */
+		private void onJoinableRangeMoved(Joinable joinable, int fromPosition, int toPosition,
+										  int itemCount) {
+			Segment segment = mJoinableToSegment.get(joinable);
+			if (segment == null || segment.collapsed || fromPosition == toPosition
+					|| itemCount <= 0) {
+				return;
+			}
+			int segmentCount = mIndex.getCount(segment.index);
+			if (Math.min(fromPosition, toPosition) < 0
+					|| Math.max(fromPosition, toPosition) + itemCount > segmentCount) {
+				Log.d(TAG, "onJoinableRangeMoved: range doesn't exist");
+				return;
+			}
+			int joinedFrom = mIndex.getStart(segment.index) + fromPosition;
+			int joinedTo = joinedFrom + toPosition - fromPosition;
+			segment.invalidateTypes(Math.min(fromPosition, toPosition),
+					Math.max(fromPosition, toPosition) + itemCount);
+			postIndexChanged();
+			if (mMetricsListener != null) {
+				mMetricsListener.onUpdateTranslated(MetricsListener.UPDATE_MOVED, itemCount);
+			}
+			int jumpedCount = Math.abs(toPosition - fromPosition);//size of block, moved other way
+			if (itemCount <= jumpedCount) {
+				dispatchRangeMove(joinedFrom, joinedTo, itemCount);
+			} else if (toPosition > fromPosition) {//jumped block goes back
+				dispatchRangeMove(joinedFrom + itemCount, joinedFrom, jumpedCount);
+			} else {//jumped block goes forward
+				dispatchRangeMove(joinedTo, joinedTo + itemCount, jumpedCount);
+			}
+		}
+
+		/**
+		 * Notifies that items [fromPosition .. fromPosition + itemCount) now start from
+		 * toPosition, one by one, or as removal and insertion if block is too big.
+		 */
+		private void dispatchRangeMove(int fromPosition, int toPosition, int itemCount) {
+			if (fromPosition == toPosition || itemCount <= 0) return;
+			if (itemCount > MAX_SINGLE_MOVES) {
+				if (mMetricsListener != null) {
+					mMetricsListener.onFallback(MetricsListener.FALLBACK_MOVE_SPLIT, itemCount);
+				}
+				dispatchUpdate(UpdateBuffer.TYPE_REMOVE, fromPosition, itemCount);
+				dispatchUpdate(UpdateBuffer.TYPE_INSERT, toPosition, itemCount);
+			} else if (toPosition > fromPosition) {
+				for (int i = 0; i < itemCount; i++) {
+					dispatchUpdate(UpdateBuffer.TYPE_MOVE, fromPosition, toPosition + itemCount - 1);
+				}
+			} else {
+				for (int i = 0; i < itemCount; i++) {
+					dispatchUpdate(UpdateBuffer.TYPE_MOVE, fromPosition + i, toPosition + i);
+				}
+			}
+		}
+
+		private void dispatchUpdate(int type, int positionStart, int itemCount) {
+			dispatchUpdate(type, positionStart, itemCount, null);
+		}
+
+		/**
+		 * Notifies about change, which is already applied to index, or saves it until batch end.
+		 * @see UpdateBuffer#add(int, int, int, Object)
+		 */
+		private void dispatchUpdate(int type, int positionStart, int itemCount, Object payload) {
+			publishSnapshot();//before notification, so readers see notified positions
+			if (mBatchDepth > 0) {
+				mUpdateBuffer.add(type, positionStart, itemCount, payload);
+			} else {
+				mDispatching = true;
+				UpdateBuffer.notify(this, type, positionStart, itemCount, payload);
+				mDispatching = false;
+			}
+		}
+
+		/**
+		 * Publishes new index snapshot, if index was changed (not in a batch, it's published at
+		 * batch end). Joinables and types are copied only if structure was changed, otherwise
+		 * they are shared with previous snapshot, and only starts are recalculated.
+		 */
+		private void publishSnapshot() {
+			if (!mSnapshotRequested || mBatchDepth > 0
+					|| !(mSnapshotCountsChanged || mSnapshotStructureChanged)) return;
+			long startNanos = mMetricsListener != null ? System.nanoTime() : 0;
+			IndexSnapshot last = mSnapshot;
+			int size = mSegments.size();
+			Joinable[] joinables = last.mJoinables;
+			SparseIntArray[] types = last.mTypes;
+			Map<Joinable, Integer> locations = last.mLocations;
+			if (mSnapshotStructureChanged) {
+				joinables = new Joinable[size];
+				types = new SparseIntArray[size];
+				locations = new IdentityHashMap<>(size);
+				for (int i = 0; i < size; i++) {
+					Segment segment = mSegments.get(i);
+					joinables[i] = segment.joinable;
+					types[i] = segment.realToJoinedTypes;//replaced, but never modified
+					locations.put(segment.joinable, i);
+				}
+			}
+			int[] starts = new int[size + 1];
+			VisibleMask[] masks = null;//only if some joinable is filtered
+			for (int i = 0; i < size; i++) {
+				starts[i + 1] = starts[i] + mIndex.getCount(i);
+				VisibleMask mask = mSegments.get(i).mask;
+				if (mask != null) {
+					if (masks == null) {
+						masks = new VisibleMask[size];
+					}
+					masks[i] = mask;
+				}
+			}
+			mSnapshot = new IndexSnapshot(joinables, types, locations, starts, masks);
+			mSnapshotCountsChanged = false;
+			mSnapshotStructureChanged = false;
+			if (mMetricsListener != null) {
+				reportRebuild(MetricsListener.REBUILD_SNAPSHOT, startNanos);
+			}
+		}
+
+		//can be called from any thread
+		private IndexSnapshot getSnapshotInternal() {
+			if (!mSnapshotRequested) {
+				mSnapshotRequested = true;
+				if (Looper.myLooper() == Looper.getMainLooper()) {
+					publishSnapshot();
+				} else {
+					JoinerExecutors.getMainHandler().post(new Runnable() {
+						@Override
+						public void run() {
+							publishSnapshot();
+						}
+					});
+				}
+			}
+			return mSnapshot;
+		}
+
+		private void reportRebuild(int reason, long startNanos) {
+			long durationNanos = System.nanoTime() - startNanos;
+			mMetricsListener.onIndexRebuilt(reason, mSegments.size(), durationNanos,
+					getIndexBytes());
+		}
+
+		/**
+		 * Rough estimation of index memory: segment index, segments with their type maps and
+		 * caches, and published snapshot. Object headers and map entries are taken by average.
+		 */
+		private long getIndexBytes() {
+			long bytes = mIndex.getApproximateBytes();
+			for (Segment segment : mSegments) {
+				bytes += SEGMENT_BYTES + segment.getApproximateTypeBytes();
+			}
+			return bytes + (long) mSnapshot.getJoinableCount() * SNAPSHOT_BYTES_PER_JOINABLE;
+		}
+
+		private void beginBatchInternal() {
+			mBatchDepth++;
+		}
+
+		private void endBatchInternal() {
+			if (mBatchDepth == 0) {
+				throw new IllegalStateException("endBatch called without beginBatch");
+			}
+			if (--mBatchDepth == 0) {
+				publishSnapshot();
+				if (!mUpdateBuffer.isEmpty()) {
+					mDispatching = true;
+					mUpdateBuffer.dispatchTo(this);
+					mDispatching = false;
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Joinable in host adapter. Index is location of joinable, and also the index of segment
+	 * in {@link SegmentIndex}. Segment resolves joined types of its items lazily: joinable with
+	 * single type never asked for item type, others cache a few resolved types (recycler asks
+	 * only for visible items, so small cache is enough). Cache is invalidated by changed ranges.
+	 */
+	private static class Segment {
+
+		private static final int TYPE_CACHE_LIMIT = 64;
+
+		private final Joinable joinable;
+		private int index;
+		private SparseIntArray realToJoinedTypes;
+		private SparseArray<Object> typeCreators;//for nested joiner, see onJoinableTypesChanged
+		private boolean singleType;
+		private int spanSize = 0;//0 if not set
+		private boolean collapsed = false;
+		private int idNamespace;
+		private long idSalt;//see ItemIds.getSalt
+		private VisibleMask mask;//null if all items are shown
+		private int filterVersion;//changed by every update from joinable, see mLastFilterVersion
+		private int singleJoinedType;
+		private SparseIntArray typeCache;//real position to joined type
+
+		private Segment(Joinable joinable) {
+			this.joinable = joinable;
+		}
+
+		private void setJoinedTypes(SparseIntArray realToJoinedTypes) {
+			this.realToJoinedTypes = realToJoinedTypes;
+			singleType = realToJoinedTypes.size() == 1;
+			singleJoinedType = singleType ? realToJoinedTypes.valueAt(0) : RecyclerView.INVALID_TYPE;
+			typeCache = singleType ? null : new SparseIntArray();
+		}
+
+		//offset is position among shown items
+		private int getRealPosition(int offset) {
+			return mask != null ? mask.getRealPosition(offset) : offset;
+		}
+
+		private int getJoinedType(int realPosition) {
+			if (singleType) return singleJoinedType;
+			int cachedType = typeCache.get(realPosition, RecyclerView.INVALID_TYPE);
+			if (cachedType != RecyclerView.INVALID_TYPE) return cachedType;
+			int realType = joinable.getAdapter().getItemViewType(realPosition);
+			int joinedType = realToJoinedTypes.get(realType);
+			if (typeCache.size() >= TYPE_CACHE_LIMIT) {
+				typeCache.clear();
+			}
+			typeCache.put(realPosition, joinedType);
+			return joinedType;
+		}
+
+		private int getRealType(int realPosition) {
+			if (singleType) return realToJoinedTypes.keyAt(0);
+			return joinable.getAdapter().getItemViewType(realPosition);
+		}
+
+		/**
+		 * Drops cached types for real positions from [fromPosition .. toPosition)
+		 */
+		private void invalidateTypes(int fromPosition, int toPosition) {
+			if (typeCache == null) return;
+			for (int i = typeCache.size() - 1; i >= 0; i--) {
+				int realPosition = typeCache.keyAt(i);
+				if (realPosition >= fromPosition && realPosition < toPosition) {
+					typeCache.removeAt(i);
+				}
+			}
+		}
+
+		private void invalidateTypes() {
+			if (typeCache != null) {
+				typeCache.clear();
+			}
+		}
+
+		//key and value of every sparse array entry
+		private int getApproximateTypeBytes() {
+			int entryCount = realToJoinedTypes.size() + (typeCache != null ? typeCache.size() : 0);
+			return entryCount * 8;
+		}
+
+	}
+
+	/**
+	 * Joinable, which represents nested joiner. Its real types are joined types of nested joiner.
+	 */
+	private static class NestedJoinable implements Joinable {
+
+		private final HostAdapter mHostAdapter;
+
+		private NestedJoinable(HostAdapter hostAdapter) {
+			mHostAdapter = hostAdapter;
+			hostAdapter.mNestedJoinable = this;
+		}
+
+		@Override
+		public RecyclerView.Adapter getAdapter() {
+			return mHostAdapter;
+		}
+
+		@Override
+		public int getTypeCount() {
+			return mHostAdapter.mJoinedTypeToJoinable.size();
+		}
+
+		@Override
+		public int getTypeByIndex(int typeIndex) {
+			return mHostAdapter.mJoinedTypeToJoinable.keyAt(typeIndex);
+		}
+
+	}
+
+	/**
+	 * An observer to set in joinable adapters (needed for auto update implementation)
+	 */
+	private static class DataObserver extends RecyclerView.AdapterDataObserver {
+
+		private Joinable mJoinable;
+		private HostAdapter mHostAdapter;
 
 		private DataObserver(Joinable joinable, HostAdapter hostAdapter) {
 			mJoinable = joinable;
@@ -450,37 +2881,48 @@ public class RvJoiner {
 
 		@Override
 		public void onChanged() {
-			mHostAdapter.notifyDataSetChanged();//can't detect what happens with items, update all list
+			update(UpdateBuffer.TYPE_RESET, 0, 0, 0, null);
 		}
 
 		@Override
 		public void onItemRangeChanged(int positionStart, int itemCount) {
-			mHostAdapter.notifyItemRangeChanged(getJoinedPosition(positionStart), itemCount);
+			onItemRangeChanged(positionStart, itemCount, null);
+		}
+
+		@Override
+		public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+			update(UpdateBuffer.TYPE_CHANGE, positionStart, itemCount, 0, payload);
 		}
 
 		@Override
 		public void onItemRangeInserted(int positionStart, int itemCount) {
-			mHostAdapter.notifyItemRangeInserted(getJoinedPosition(positionStart), itemCount);
+			update(UpdateBuffer.TYPE_INSERT, positionStart, itemCount, 0, null);
 		}
 
 		@Override
 		public void onItemRangeRemoved(int positionStart, int itemCount) {
-			mHostAdapter.notifyItemRangeRemoved(getJoinedPosition(positionStart), itemCount);
+			update(UpdateBuffer.TYPE_REMOVE, positionStart, itemCount, 0, null);
 		}
 
 		@Override
 		public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
-			if (itemCount == 1) {
-				mHostAdapter.notifyItemMoved(getJoinedPosition(fromPosition),
-						getJoinedPosition(toPosition));
-			} else if (itemCount > 1) {
-				onChanged();//no notifyItemRangeMoved method by now
-			}
+			update(UpdateBuffer.TYPE_MOVE, fromPosition, itemCount, toPosition, null);
 		}
 
-		//just a wrapper to be short
-		private int getJoinedPosition(int realPosition) {
-			return mHostAdapter.getJoinedPosition(realPosition, mJoinable);
+		//applies update now, or queues it in frame dispatch mode, if it's sent from background
+		private void update(int type, int positionStart, int itemCount, int toPosition,
+							Object payload) {
+			FrameDispatcher dispatcher = mHostAdapter.mFrameDispatcher;
+			if (dispatcher != null) {
+				if (Looper.myLooper() != Looper.getMainLooper()) {
+					dispatcher.enqueue(mJoinable, type, positionStart, itemCount, toPosition,
+							payload);
+					return;
+				}
+				dispatcher.flush();//queued updates are older, so apply them first
+			}
+			mHostAdapter.applyJoinableUpdate(mJoinable, type, positionStart, itemCount,
+					toPosition, payload);
 		}
 
 	}
@@ -0,0 +1,123 @@
+package su.j2e.rvjoiner;
+
+/**
+ * Position index for joined adapter. Stores only item count of every segment (joinable) in a
+ * Fenwick tree, so finding a segment by joined position, getting segment start or changing
+ * segment size costs O(log J) (J - segment count) and doesn't depend on total item count.
+ * Inserting or removing a whole segment is O(J), but it's a rare structure change.
+ */
+class SegmentIndex {
+
+	private int[] mCounts = new int[8];//item count by segment index
+	private int[] mTree = new int[9];//1-based fenwick tree over mCounts
+	private int mSize = 0;
+	private int mTotalCount = 0;
+	private int mHighestBit = 0;//highest power of 2 <= mSize, for search
+
+	int size() {
+		return mSize;
+	}
+
+	int getTotalCount() {
+		return mTotalCount;
+	}
+
+	//memory of arrays, including unused capacity
+	int getApproximateBytes() {
+		return (mCounts.length + mTree.length) * 4;
+	}
+
+	int getCount(int segment) {
+		return mCounts[segment];
+	}
+
+	/**
+	 * @return joined position of first item in segment (sum of all previous segment counts)
+	 */
+	int getStart(int segment) {
+		int sum = 0;
+		for (int i = segment; i > 0; i -= i & -i) {
+			sum += mTree[i];
+		}
+		return sum;
+	}
+
+	/**
+	 * @return index of segment which contains joined position, or -1 if position is out of range.
+	 * Empty segments are never returned.
+	 */
+	int findSegment(int position) {
+		if (position < 0 || position >= mTotalCount) return -1;
+		int index = 0;
+		int rest = position;
+		for (int step = mHighestBit; step > 0; step >>= 1) {
+			int next = index + step;
+			if (next <= mSize && mTree[next] <= rest) {
+				index = next;
+				rest -= mTree[next];
+			}
+		}
+		return index;//count of segments, which end before position == 0-based index of segment
+	}
+
+	void setCount(int segment, int count) {
+		int delta = count - mCounts[segment];
+		if (delta == 0) return;
+		mCounts[segment] = count;
+		mTotalCount += delta;
+		for (int i = segment + 1; i <= mSize; i += i & -i) {
+			mTree[i] += delta;
+		}
+	}
+
+	void insert(int segment, int count) {
+		if (mSize == mCounts.length) {
+			int[] counts = new int[mSize * 2];
+			System.arraycopy(mCounts, 0, counts, 0, mSize);
+			mCounts = counts;
+			mTree = new int[counts.length + 1];
+		}
+		System.arraycopy(mCounts, segment, mCounts, segment + 1, mSize - segment);
+		mCounts[segment] = count;
+		mSize++;
+		rebuild();
+	}
+
+	void remove(int segment) {
+		System.arraycopy(mCounts, segment + 1, mCounts, segment, mSize - segment - 1);
+		mSize--;
+		rebuild();
+	}
+
+	/**
+	 * Replaces all segments, O(J)
+	 * @param counts item counts of new segments
+	 * @param size count of new segments
+	 */
+	void setCounts(int[] counts, int size) {
+		if (size > mCounts.length) {
+			mCounts = new int[Math.max(size, mCounts.length * 2)];
+			mTree = new int[mCounts.length + 1];
+		}
+		System.arraycopy(counts, 0, mCounts, 0, size);
+		mSize = size;
+		rebuild();
+	}
+
+	//O(J) fenwick tree construction
+	private void rebuild() {
+		mTotalCount = 0;
+		for (int i = 1; i <= mSize; i++) {
+			mTree[i] = mCounts[i - 1];
+			mTotalCount += mCounts[i - 1];
+		}
+		for (int i = 1; i <= mSize; i++) {
+			int parent = i + (i & -i);
+			if (parent <= mSize) {
+				mTree[parent] += mTree[i];
+			}
+		}
+		mHighestBit = mSize == 0 ? 0 : Integer.highestOneBit(mSize);
+	}
+
+}
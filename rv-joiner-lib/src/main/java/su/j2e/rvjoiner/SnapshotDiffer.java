@@ -0,0 +1,106 @@
+package su.j2e.rvjoiner;
+
+import android.support.v7.util.DiffUtil;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Diffs joinable data snapshots on background executor and applies results on main thread.
+ * Every submit is a separate task, so snapshots of different joinables are diffed in parallel.
+ * If new snapshot is submitted for joinable before previous one is applied, previous result is
+ * dropped. Exception of diffing is rethrown on main thread, so it isn't lost in executor.
+ */
+class SnapshotDiffer {
+
+	private final RvJoiner mRvJoiner;
+	//last submitted generation by joinable, main thread only
+	private final Map<RvJoiner.Joinable, Long> mPendingGenerations = new IdentityHashMap<>();
+	private long mLastGeneration = 0;
+
+	SnapshotDiffer(RvJoiner rvJoiner) {
+		mRvJoiner = rvJoiner;
+	}
+
+	<T> void submit(final RvJoiner.Joinable joinable, final List<T> snapshot,
+					final RvJoiner.SnapshotCallback<T> callback) {
+		final long generation = ++mLastGeneration;
+		mPendingGenerations.put(joinable, generation);
+		final List<T> oldData = new ArrayList<>(callback.getData());
+		mRvJoiner.getBackgroundExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				final DiffUtil.DiffResult result;
+				try {
+					result = DiffUtil.calculateDiff(
+							new SnapshotDiffCallback<>(oldData, snapshot, callback));
+				} catch (final RuntimeException ex) {
+					JoinerExecutors.getMainHandler().post(new Runnable() {
+						@Override
+						public void run() {
+							if (isPending(joinable, generation)) {
+								mPendingGenerations.remove(joinable);
+							}
+							throw ex;
+						}
+					});
+					return;
+				}
+				JoinerExecutors.getMainHandler().post(new Runnable() {
+					@Override
+					public void run() {
+						if (!isPending(joinable, generation)) return;//newer snapshot is on the way
+						mPendingGenerations.remove(joinable);
+						callback.setData(snapshot);
+						mRvJoiner.dispatchDiffResult(joinable, result);
+					}
+				});
+			}
+		});
+	}
+
+	private boolean isPending(RvJoiner.Joinable joinable, long generation) {
+		Long pendingGeneration = mPendingGenerations.get(joinable);
+		return pendingGeneration != null && pendingGeneration == generation;
+	}
+
+	private static class SnapshotDiffCallback<T> extends DiffUtil.Callback {
+
+		private final List<T> mOldData;
+		private final List<T> mNewData;
+		private final RvJoiner.SnapshotCallback<T> mCallback;
+
+		private SnapshotDiffCallback(List<T> oldData, List<T> newData,
+									 RvJoiner.SnapshotCallback<T> callback) {
+			mOldData = oldData;
+			mNewData = newData;
+			mCallback = callback;
+		}
+
+		@Override
+		public int getOldListSize() {
+			return mOldData.size();
+		}
+
+		@Override
+		public int getNewListSize() {
+			return mNewData.size();
+		}
+
+		@Override
+		public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+			return mCallback.getItemId(mOldData.get(oldItemPosition))
+					== mCallback.getItemId(mNewData.get(newItemPosition));
+		}
+
+		@Override
+		public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+			return mCallback.areContentsTheSame(mOldData.get(oldItemPosition),
+					mNewData.get(newItemPosition));
+		}
+
+	}
+
+}
@@ -0,0 +1,27 @@
+package su.j2e.rvjoiner;
+
+import java.util.Arrays;
+
+/**
+ * Composite value key for {@link RvJoiner.SharedTypes#getTypeKey(int)}: keys are equal, if all
+ * their parts are equal.
+ */
+final class TypeKey {
+
+	private final Object[] mParts;
+
+	TypeKey(Object... parts) {
+		mParts = parts;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return this == o || o instanceof TypeKey && Arrays.equals(mParts, ((TypeKey) o).mParts);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(mParts);
+	}
+
+}
@@ -0,0 +1,216 @@
+package su.j2e.rvjoiner;
+
+import android.support.v7.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects joined notifications (in the order they happen) and merges them, so adapter receives
+ * the smallest set of ranged notifications we can find cheaply. Every new update is merged with
+ * the last one if possible (adjacent ranges, changes and removals inside just inserted range and
+ * so on). Any full reset makes all other updates needless. Payloads of changes are kept: changes
+ * of the same range get merged payload (unwrapped on bind, see {@link #unwrapPayloads(List)}),
+ * other changes are merged only if they have equal payloads. Change without payload means full
+ * rebind, so it absorbs payloads of the same range.
+ */
+class UpdateBuffer {
+
+	static final int TYPE_CHANGE = 0;
+	static final int TYPE_INSERT = 1;
+	static final int TYPE_REMOVE = 2;
+	static final int TYPE_MOVE = 3;
+	static final int TYPE_RESET = 4;
+
+	private final List<Update> mUpdates = new ArrayList<>();
+	private boolean mReset = false;
+
+	boolean isEmpty() {
+		return !mReset && mUpdates.isEmpty();
+	}
+
+	/**
+	 * @param type one of TYPE_ constants
+	 * @param positionStart start of range, or from position for {@link #TYPE_MOVE}
+	 * @param itemCount count of items in range, or to position for {@link #TYPE_MOVE}
+	 * @param payload payload for {@link #TYPE_CHANGE}, or null
+	 */
+	void add(int type, int positionStart, int itemCount, Object payload) {
+		if (mReset) return;
+		if (type == TYPE_RESET) {
+			mReset = true;
+			mUpdates.clear();
+			return;
+		}
+		if (type != TYPE_MOVE && itemCount <= 0) return;
+		if (!mUpdates.isEmpty() && merge(mUpdates.get(mUpdates.size() - 1),
+				type, positionStart, itemCount, payload)) {
+			return;
+		}
+		mUpdates.add(new Update(type, positionStart, itemCount, payload));
+	}
+
+	/**
+	 * Notifies adapter about all collected updates and clears buffer
+	 */
+	void dispatchTo(RecyclerView.Adapter adapter) {
+		if (mReset) {
+			adapter.notifyDataSetChanged();
+		} else {
+			for (Update update : mUpdates) {
+				notify(adapter, update.type, update.positionStart, update.itemCount,
+						update.payload);
+			}
+		}
+		mUpdates.clear();
+		mReset = false;
+	}
+
+	static void notify(RecyclerView.Adapter adapter, int type, int positionStart, int itemCount,
+					   Object payload) {
+		switch (type) {
+			case TYPE_CHANGE:
+				adapter.notifyItemRangeChanged(positionStart, itemCount, payload);
+				break;
+			case TYPE_INSERT:
+				adapter.notifyItemRangeInserted(positionStart, itemCount);
+				break;
+			case TYPE_REMOVE:
+				adapter.notifyItemRangeRemoved(positionStart, itemCount);
+				break;
+			case TYPE_MOVE:
+				adapter.notifyItemMoved(positionStart, itemCount);
+				break;
+			case TYPE_RESET:
+				adapter.notifyDataSetChanged();
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown update type " + type);
+		}
+	}
+
+	/**
+	 * Replaces merged payloads in bind payloads with payloads they contain.
+	 * @return the same list, if there are no merged payloads
+	 */
+	static List<Object> unwrapPayloads(List<Object> payloads) {
+		for (int i = 0; i < payloads.size(); i++) {
+			if (payloads.get(i) instanceof MergedPayload) {
+				List<Object> unwrapped = new ArrayList<>(payloads.size() + 1);
+				for (Object payload : payloads) {
+					if (payload instanceof MergedPayload) {
+						unwrapped.addAll(((MergedPayload) payload).payloads);
+					} else {
+						unwrapped.add(payload);
+					}
+				}
+				return unwrapped;
+			}
+		}
+		return payloads;
+	}
+
+	//return true if new update was merged into last
+	private boolean merge(Update last, int type, int positionStart, int itemCount,
+						  Object payload) {
+		int lastEnd = last.positionStart + last.itemCount;
+		switch (last.type) {
+			case TYPE_INSERT:
+				if (type == TYPE_INSERT
+						&& positionStart >= last.positionStart && positionStart <= lastEnd) {
+					last.itemCount += itemCount;
+					return true;
+				}
+				if ((type == TYPE_CHANGE || type == TYPE_REMOVE)
+						&& positionStart >= last.positionStart
+						&& positionStart + itemCount <= lastEnd) {
+					if (type == TYPE_REMOVE) {//just inserted items are removed
+						last.itemCount -= itemCount;
+						if (last.itemCount == 0) {
+							mUpdates.remove(mUpdates.size() - 1);
+						}
+					}
+					return true;//inserted items will be bound anyway
+				}
+				return false;
+			case TYPE_REMOVE:
+				if (type == TYPE_REMOVE && (positionStart == last.positionStart
+						|| positionStart + itemCount == last.positionStart)) {
+					last.positionStart = positionStart;
+					last.itemCount += itemCount;
+					return true;
+				}
+				return false;
+			case TYPE_CHANGE:
+				if (type != TYPE_CHANGE) return false;
+				if (positionStart == last.positionStart && itemCount == last.itemCount) {
+					mergePayload(last, payload);
+					return true;
+				}
+				//payloads can't be given to items, which weren't changed with them
+				boolean samePayload = last.payload == null ? payload == null
+						: last.payload.equals(payload);
+				if (samePayload && positionStart <= lastEnd
+						&& positionStart + itemCount >= last.positionStart) {
+					int end = Math.max(lastEnd, positionStart + itemCount);
+					last.positionStart = Math.min(last.positionStart, positionStart);
+					last.itemCount = end - last.positionStart;
+					return true;
+				}
+				return false;
+			default:
+				return false;
+		}
+	}
+
+	//change without payload absorbs any payload, otherwise payloads are collected
+	private static void mergePayload(Update last, Object payload) {
+		if (last.payload == null) return;
+		if (payload == null) {
+			last.payload = null;
+			return;
+		}
+		if (last.merged == null) {//payload isn't ours, so don't modify it
+			last.merged = new MergedPayload();
+			last.merged.add(last.payload);
+			last.payload = last.merged;
+		}
+		last.merged.add(payload);
+	}
+
+	private static class Update {
+
+		private final int type;
+		private int positionStart;
+		private int itemCount;
+		private Object payload;
+		private MergedPayload merged;//created by this buffer, if payloads were merged
+
+		private Update(int type, int positionStart, int itemCount, Object payload) {
+			this.type = type;
+			this.positionStart = positionStart;
+			this.itemCount = itemCount;
+			this.payload = payload;
+		}
+
+	}
+
+	/**
+	 * Several payloads, sent as one. Can get to child adapter only inside bind payloads list, so
+	 * it's unwrapped there.
+	 */
+	static final class MergedPayload {
+
+		private final List<Object> payloads = new ArrayList<>(2);
+
+		private void add(Object payload) {
+			if (payload instanceof MergedPayload) {//from nested joiner
+				payloads.addAll(((MergedPayload) payload).payloads);
+			} else {
+				payloads.add(payload);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,148 @@
+package su.j2e.rvjoiner;
+
+import java.util.Arrays;
+
+/**
+ * Visible (not filtered out) items of joinable: sorted real positions of visible items and real
+ * item count. Offset is position among visible items, joiner's index counts only them. Mask is
+ * immutable, every change makes a new one in O(n), so masks are shared with index snapshots.
+ */
+final class VisibleMask {
+
+	private static final int[] EMPTY = new int[0];
+
+	private final int[] mPositions;
+	private final int mSize;
+	private final int mRealCount;
+
+	/**
+	 * @param positions sorted real positions of visible items, shouldn't be modified later
+	 * @param size count of positions
+	 * @param realCount item count of joinable
+	 */
+	VisibleMask(int[] positions, int size, int realCount) {
+		mPositions = positions;
+		mSize = size;
+		mRealCount = realCount;
+	}
+
+	static VisibleMask empty(int realCount) {
+		return new VisibleMask(EMPTY, 0, realCount);
+	}
+
+	static VisibleMask all(int realCount) {
+		int[] positions = new int[realCount];
+		for (int i = 0; i < realCount; i++) {
+			positions[i] = i;
+		}
+		return new VisibleMask(positions, realCount, realCount);
+	}
+
+	int size() {
+		return mSize;
+	}
+
+	int getRealCount() {
+		return mRealCount;
+	}
+
+	int getRealPosition(int offset) {
+		return mPositions[offset];
+	}
+
+	/**
+	 * @return offset of visible item, or -1 if item is hidden
+	 */
+	int getOffset(int realPosition) {
+		int offset = Arrays.binarySearch(mPositions, 0, mSize, realPosition);
+		return offset >= 0 ? offset : -1;
+	}
+
+	/**
+	 * @return count of visible items before real position (offset, where item would be inserted)
+	 */
+	int getInsertOffset(int realPosition) {
+		int offset = Arrays.binarySearch(mPositions, 0, mSize, realPosition);
+		return offset >= 0 ? offset : -offset - 1;
+	}
+
+	/**
+	 * @param visible visibility of inserted items
+	 */
+	VisibleMask insert(int realStart, boolean[] visible) {
+		int offset = getInsertOffset(realStart);
+		int[] positions = new int[mSize + countVisible(visible)];
+		System.arraycopy(mPositions, 0, positions, 0, offset);
+		int size = offset;
+		for (int i = 0; i < visible.length; i++) {
+			if (visible[i]) {
+				positions[size++] = realStart + i;
+			}
+		}
+		for (int i = offset; i < mSize; i++) {
+			positions[size++] = mPositions[i] + visible.length;
+		}
+		return new VisibleMask(positions, size, mRealCount + visible.length);
+	}
+
+	VisibleMask remove(int realStart, int count) {
+		int startOffset = getInsertOffset(realStart);
+		int endOffset = getInsertOffset(realStart + count);
+		int[] positions = new int[mSize - (endOffset - startOffset)];
+		System.arraycopy(mPositions, 0, positions, 0, startOffset);
+		int size = startOffset;
+		for (int i = endOffset; i < mSize; i++) {
+			positions[size++] = mPositions[i] - count;
+		}
+		return new VisibleMask(positions, size, mRealCount - count);
+	}
+
+	/**
+	 * @param visible new visibility of changed items
+	 */
+	VisibleMask change(int realStart, boolean[] visible) {
+		int startOffset = getInsertOffset(realStart);
+		int endOffset = getInsertOffset(realStart + visible.length);
+		int[] positions = new int[mSize - (endOffset - startOffset) + countVisible(visible)];
+		System.arraycopy(mPositions, 0, positions, 0, startOffset);
+		int size = startOffset;
+		for (int i = 0; i < visible.length; i++) {
+			if (visible[i]) {
+				positions[size++] = realStart + i;
+			}
+		}
+		System.arraycopy(mPositions, endOffset, positions, size, mSize - endOffset);
+		return new VisibleMask(positions, positions.length, mRealCount);
+	}
+
+	/**
+	 * Items [fromPosition .. fromPosition + count) are moved, so they start from toPosition
+	 */
+	VisibleMask move(int fromPosition, int toPosition, int count) {
+		int[] positions = new int[mSize];
+		for (int i = 0; i < mSize; i++) {
+			int position = mPositions[i];
+			if (position >= fromPosition && position < fromPosition + count) {
+				position += toPosition - fromPosition;
+			} else if (toPosition > fromPosition && position >= fromPosition + count
+					&& position < toPosition + count) {
+				position -= count;
+			} else if (toPosition < fromPosition && position >= toPosition
+					&& position < fromPosition) {
+				position += count;
+			}
+			positions[i] = position;
+		}
+		Arrays.sort(positions);
+		return new VisibleMask(positions, mSize, mRealCount);
+	}
+
+	private static int countVisible(boolean[] visible) {
+		int count = 0;
+		for (boolean item : visible) {
+			if (item) count++;
+		}
+		return count;
+	}
+
+}
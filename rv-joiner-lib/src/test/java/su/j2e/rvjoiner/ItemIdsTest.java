@@ -0,0 +1,101 @@
+package su.j2e.rvjoiner;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Joined ids of joinables with overlapping raw ids (see {@link RvJoiner#setIdMode(int)}).
+ */
+public class ItemIdsTest {
+
+	@Test
+	public void removedAndAdded_sameRawIds_getOtherIdsWhileHolderIsBound() {
+		for (int idMode : new int[] {RvJoiner.ID_MODE_HIGH_BITS, RvJoiner.ID_MODE_HASH}) {
+			RvJoiner joiner = new RvJoiner(true);
+			joiner.setIdMode(idMode);
+			RecyclerView recyclerView = new RecyclerView(null);
+			RecyclerView.Adapter host = joiner.getAdapter();
+			recyclerView.setAdapter(host);
+			JoinableAdapter first = new JoinableAdapter(new RowAdapter(), true);
+			joiner.add(first);
+			long oldId = host.getItemId(0);
+			RecyclerView.ViewHolder holder = host.createViewHolder(recyclerView, 0);
+			host.bindViewHolder(holder, 0);//attached, cached or animating out
+			joiner.remove(first);
+			joiner.add(new JoinableAdapter(new RowAdapter(), true));
+			assertNotEquals(oldId, host.getItemId(0));
+			//the same in a single change, holder is rebound to the second joinable
+			long replacedId = host.getItemId(0);
+			host.bindViewHolder(holder, 0);
+			joiner.setJoinables(Collections.singletonList(
+					new JoinableAdapter(new RowAdapter(), true)));
+			assertNotEquals(replacedId, host.getItemId(0));
+		}
+	}
+
+	@Test
+	public void highBits_tooManyJoinables_throwOnAdd() {
+		RvJoiner joiner = new RvJoiner(true);
+		joiner.setIdMode(RvJoiner.ID_MODE_HIGH_BITS);
+		List<RvJoiner.Joinable> joinables = new ArrayList<>();
+		for (int i = 0; i <= ItemIds.MAX_HIGH_BITS_NAMESPACE; i++) {
+			joinables.add(new JoinableAdapter(new RowAdapter(), true));
+		}
+		joiner.addAll(joinables);
+		try {
+			joiner.add(new JoinableAdapter(new RowAdapter(), true));
+			fail("add should throw");
+		} catch (IllegalStateException expected) {
+			assertEquals(joinables.size(), joiner.getJoinableCount());
+		}
+		joiner.setIdMode(RvJoiner.ID_MODE_HASH);
+		joiner.add(new JoinableAdapter(new RowAdapter(), true));
+		try {
+			joiner.setIdMode(RvJoiner.ID_MODE_HIGH_BITS);
+			fail("setIdMode should throw");
+		} catch (IllegalStateException expected) {
+			joiner.getAdapter().getItemId(joiner.getAdapter().getItemCount() - 1);
+		}
+	}
+
+	//ids are row ids, which are the same in every adapter
+	private static class RowAdapter extends RecyclerView.Adapter<RowAdapter.Holder> {
+
+		@Override
+		public Holder onCreateViewHolder(ViewGroup parent, int viewType) {
+			return new Holder(new View(null));
+		}
+
+		@Override
+		public void onBindViewHolder(Holder holder, int position) {}
+
+		@Override
+		public int getItemCount() {
+			return 1;
+		}
+
+		@Override
+		public long getItemId(int position) {
+			return position + 1;
+		}
+
+		static class Holder extends RecyclerView.ViewHolder {
+
+			Holder(View itemView) {
+				super(itemView);
+			}
+
+		}
+
+	}
+
+}
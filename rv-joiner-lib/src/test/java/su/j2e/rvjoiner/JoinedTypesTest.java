@@ -0,0 +1,186 @@
+package su.j2e.rvjoiner;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Release and reuse of joined types. Recycler is simulated: holders are created, bound,
+ * recycled and pooled the same way as RecyclerView does it (see stubs of android classes).
+ */
+public class JoinedTypesTest {
+
+	@Test
+	public void addRemoveCycles_keepTypesAndObservers() {
+		RvJoiner joiner = new RvJoiner();
+		joiner.add(new JoinableLayout(1));
+		RecyclerView.Adapter host = joiner.getAdapter();
+		WeakReference<TestAdapter> removedAdapter = null;
+		for (int i = 0; i < 100000; i++) {
+			TestAdapter adapter = new TestAdapter(2);
+			JoinableAdapter joinable = new JoinableAdapter(adapter, TestAdapter.TYPES);
+			joiner.add(joinable, 0);
+			assertTrue(host.getItemViewType(0) < 4 && host.getItemViewType(1) < 4);
+			joiner.remove(joinable);
+			assertFalse(adapter.hasObservers());
+			removedAdapter = new WeakReference<>(adapter);
+		}
+		assertEquals(1, joiner.getJoinableCount());
+		assertEquals(1, host.getItemCount());
+		//joiner doesn't retain removed joinables (and their adapters) anywhere
+		assertTrue(isCollected(removedAdapter));
+	}
+
+	@Test
+	public void freeType_isNotReusedWhileHolderIsBound() {
+		RvJoiner joiner = new RvJoiner();
+		RecyclerView recyclerView = new RecyclerView(null);
+		RecyclerView.Adapter host = joiner.getAdapter();
+		recyclerView.setAdapter(host);
+		JoinableAdapter first = new JoinableAdapter(new TestAdapter(1));
+		joiner.add(first);
+		int type = host.getItemViewType(0);
+		RecyclerView.ViewHolder holder = host.createViewHolder(recyclerView, type);
+		host.bindViewHolder(holder, 0);//attached, cached or animating out
+		joiner.remove(first);
+		JoinableAdapter second = new JoinableAdapter(new OtherAdapter());
+		joiner.add(second);
+		assertNotEquals(type, host.getItemViewType(0));
+		recycle(recyclerView, holder);
+		joiner.remove(second);
+		joiner.add(new JoinableAdapter(new OtherAdapter()));
+		assertEquals(type, host.getItemViewType(0));//reused, and old holder is purged
+		assertNull(recyclerView.getRecycledViewPool().getRecycledView(type));
+	}
+
+	@Test
+	public void nestedReplace_doesNotBindHolderOfOldJoinable() {
+		RvJoiner inner = new RvJoiner();
+		JoinableAdapter first = new JoinableAdapter(new TestAdapter(1));
+		inner.add(first);
+		RvJoiner outer = new RvJoiner();
+		outer.add(new JoinableLayout(1));
+		outer.add(inner.asJoinable());
+		RecyclerView recyclerView = new RecyclerView(null);
+		RecyclerView.Adapter host = outer.getAdapter();
+		recyclerView.setAdapter(host);
+		RecyclerView.ViewHolder holder = obtainAndBind(recyclerView, 1);
+		recycle(recyclerView, holder);
+		inner.replace(first, new JoinableAdapter(new OtherAdapter()));
+		obtainAndBind(recyclerView, 1);//ClassCastException, if pooled holder is bound
+	}
+
+	@Test
+	public void nestedSetJoinables_remapsParentTypes() {
+		RvJoiner inner = new RvJoiner();
+		inner.add(new JoinableAdapter(new TestAdapter(1)));
+		RvJoiner outer = new RvJoiner();
+		outer.add(inner.asJoinable());
+		RecyclerView recyclerView = new RecyclerView(null);
+		recyclerView.setAdapter(outer.getAdapter());
+		RecyclerView.ViewHolder attached = obtainAndBind(recyclerView, 0);
+		RecyclerView.ViewHolder pooled = obtainAndBind(recyclerView, 0);
+		recycle(recyclerView, pooled);
+		//old joinable is removed and new one is added by one change
+		inner.setJoinables(Collections.singletonList(new JoinableAdapter(new OtherAdapter())));
+		assertNotEquals(attached.getItemViewType(), outer.getAdapter().getItemViewType(0));
+		obtainAndBind(recyclerView, 0);
+	}
+
+	private static boolean isCollected(WeakReference<?> reference) {
+		for (int i = 0; i < 10 && reference.get() != null; i++) {
+			System.gc();
+			System.runFinalization();
+		}
+		return reference.get() == null;
+	}
+
+	//the same as recycler does, when it gets holder for position
+	private static RecyclerView.ViewHolder obtainAndBind(RecyclerView recyclerView, int position) {
+		RecyclerView.Adapter host = recyclerView.getAdapter();
+		int type = host.getItemViewType(position);
+		RecyclerView.ViewHolder holder = recyclerView.getRecycledViewPool().getRecycledView(type);
+		if (holder == null) {
+			holder = host.createViewHolder(recyclerView, type);
+		}
+		host.bindViewHolder(holder, position);
+		return holder;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void recycle(RecyclerView recyclerView, RecyclerView.ViewHolder holder) {
+		recyclerView.getAdapter().onViewRecycled(holder);
+		recyclerView.getRecycledViewPool().putRecycledView(holder);
+	}
+
+	private static class TestAdapter extends RecyclerView.Adapter<TestAdapter.Holder> {
+
+		static final int[] TYPES = {0, 1};
+
+		private final int mItemCount;
+
+		TestAdapter(int itemCount) {
+			mItemCount = itemCount;
+		}
+
+		@Override
+		public Holder onCreateViewHolder(ViewGroup parent, int viewType) {
+			return new Holder(new View(null));
+		}
+
+		@Override
+		public void onBindViewHolder(Holder holder, int position) {}
+
+		@Override
+		public int getItemCount() {
+			return mItemCount;
+		}
+
+		@Override
+		public int getItemViewType(int position) {
+			return TYPES[position % TYPES.length];
+		}
+
+		static class Holder extends RecyclerView.ViewHolder {
+
+			Holder(View itemView) {
+				super(itemView);
+			}
+
+		}
+
+	}
+
+	private static class OtherAdapter extends RecyclerView.Adapter<OtherAdapter.Holder> {
+
+		@Override
+		public Holder onCreateViewHolder(ViewGroup parent, int viewType) {
+			return new Holder(new View(null));
+		}
+
+		@Override
+		public void onBindViewHolder(Holder holder, int position) {}
+
+		@Override
+		public int getItemCount() {
+			return 1;
+		}
+
+		static class Holder extends RecyclerView.ViewHolder {
+
+			Holder(View itemView) {
+				super(itemView);
+			}
+
+		}
+
+	}
+
+}